@@ -0,0 +1,93 @@
+package org.synberg.pet.crudapp.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.synberg.pet.crudapp.exception.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Сброс запросов {@link Priority#LOW} по числу потоков, ожидающих соединение.
+ * <p>
+ * Метрики пула подставляются вручную: пул на 10 соединений, порог по умолчанию — половина пула.
+ */
+class AdmissionInterceptorTest {
+    private static final int POOL_SIZE = 10;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Handlers handlers = new Handlers();
+
+    @BeforeEach
+    void registerPool() {
+        Gauge.builder("hikaricp.connections.max", () -> POOL_SIZE).tag("pool", "test").register(meterRegistry);
+        Gauge.builder("hikaricp.connections.pending", pending, AtomicInteger::get).tag("pool", "test")
+                .register(meterRegistry);
+    }
+
+    @Test
+    void lowPriorityPassesAtModestContention() throws Exception {
+        AdmissionInterceptor interceptor = interceptor(null);
+        pending.set(POOL_SIZE / 2 - 1);
+
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), lowPriority()))
+                .isTrue();
+    }
+
+    @Test
+    void lowPriorityIsShedWhenHalfOfPoolIsWaited() throws Exception {
+        AdmissionInterceptor interceptor = interceptor(null);
+        pending.set(POOL_SIZE / 2);
+
+        assertThatThrownBy(() -> interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(),
+                lowPriority()))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), highPriority()))
+                .isTrue();
+    }
+
+    @Test
+    void explicitLowPriorityMaxPendingOverridesRatio() throws Exception {
+        AdmissionInterceptor interceptor = interceptor(1);
+        pending.set(1);
+
+        assertThatThrownBy(() -> interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(),
+                lowPriority()))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    private AdmissionInterceptor interceptor(Integer lowPriorityMaxPending) {
+        AdmissionProperties properties = new AdmissionProperties(true, 20, 2, 200, 0.9, Duration.ofSeconds(1),
+                lowPriorityMaxPending, 0.5, 20, Duration.ofSeconds(1), Map.of());
+        return new AdmissionInterceptor(properties, meterRegistry);
+    }
+
+    private HandlerMethod lowPriority() throws NoSuchMethodException {
+        return new HandlerMethod(handlers, Handlers.class.getMethod("list"));
+    }
+
+    private HandlerMethod highPriority() throws NoSuchMethodException {
+        return new HandlerMethod(handlers, Handlers.class.getMethod("get"));
+    }
+
+    static class Handlers {
+
+        @Admission(priority = Priority.LOW)
+        public void list() {
+        }
+
+        public void get() {
+        }
+    }
+}
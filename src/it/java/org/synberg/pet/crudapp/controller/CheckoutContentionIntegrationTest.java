@@ -0,0 +1,88 @@
+package org.synberg.pet.crudapp.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.synberg.pet.crudapp.IntegrationTestSupport;
+import org.synberg.pet.crudapp.dto.create.BookCreateDto;
+import org.synberg.pet.crudapp.dto.create.LoanCreateDto;
+import org.synberg.pet.crudapp.dto.create.UserCreateDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Конкурентная выдача одной книги: из N одновременных запросов успешен ровно один,
+ * остальные получают отказ «книга уже выдана», и в базе ровно один активный займ.
+ */
+@TestPropertySource(properties = {
+        "app.admission.initial-limit=100",
+        "app.admission.max-pending=1000"
+})
+class CheckoutContentionIntegrationTest extends IntegrationTestSupport {
+    private static final int THREADS = 32;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void exactlyOneConcurrentCheckoutWins() throws Exception {
+        String email = "contention@example.com";
+        String title = "Contended Book";
+        String author = "Contention Author";
+        assertThat(restTemplate.postForEntity("/api/users", new UserCreateDto("Contention", email), String.class)
+                .getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(restTemplate.postForEntity("/api/books", new BookCreateDto(title, author), String.class)
+                .getStatusCode().is2xxSuccessful()).isTrue();
+
+        LoanCreateDto request = new LoanCreateDto(email, title, author);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ResponseEntity<String>>> responses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < THREADS; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return restTemplate.postForEntity("/api/loans", request, String.class);
+                }));
+            }
+            start.countDown();
+            List<ResponseEntity<String>> results = new ArrayList<>();
+            for (Future<ResponseEntity<String>> response : responses) {
+                results.add(response.get(30, TimeUnit.SECONDS));
+            }
+
+            Map<HttpStatusCode, Long> statuses = results.stream()
+                    .collect(Collectors.groupingBy(ResponseEntity::getStatusCode, Collectors.counting()));
+            assertThat(statuses).containsOnlyKeys(HttpStatus.OK, HttpStatus.BAD_REQUEST);
+            assertThat(statuses.get(HttpStatus.OK)).isEqualTo(1L);
+            assertThat(statuses.get(HttpStatus.BAD_REQUEST)).isEqualTo(THREADS - 1L);
+            assertThat(results.stream()
+                    .filter(result -> HttpStatus.BAD_REQUEST.equals(result.getStatusCode()))
+                    .map(ResponseEntity::getBody))
+                    .allMatch(body -> body.contains("Book is already loaned"));
+        }
+
+        Integer active = jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM loans l JOIN books b ON b.id = l.book_id
+                WHERE b.title = ? AND b.author = ? AND l.return_date IS NULL
+                """, Integer.class, title, author);
+        assertThat(active).isEqualTo(1);
+    }
+}
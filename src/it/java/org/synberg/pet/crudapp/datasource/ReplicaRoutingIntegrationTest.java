@@ -0,0 +1,165 @@
+package org.synberg.pet.crudapp.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.synberg.pet.crudapp.IntegrationTestSupport;
+import org.synberg.pet.crudapp.dto.create.UserCreateDto;
+import org.synberg.pet.crudapp.service.Pagination;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Маршрутизация между основной базой и репликой.
+ * <p>
+ * Роль реплики играет отдельная база {@code replica} в том же контейнере со схемой из тех же
+ * миграций, но без репликации: строка, которая есть только в ней, находится лишь при чтении
+ * с реплики, а строка, записанная приложением, появляется только в основной базе.
+ * Страница пользователей читается в транзакции только для чтения, а поиск по ID заполняет
+ * общий кэш и поэтому читает с основной базы.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReplicaRoutingIntegrationTest extends IntegrationTestSupport {
+    private static final String REPLICA_DATABASE = "replica";
+    private static final JdbcTemplate REPLICA = new JdbcTemplate(createReplica());
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void replica(DynamicPropertyRegistry registry) {
+        registry.add("app.datasource.replicas[0].url", ReplicaRoutingIntegrationTest::replicaUrl);
+        registry.add("app.datasource.replicas[0].username", POSTGRES::getUsername);
+        registry.add("app.datasource.replicas[0].password", POSTGRES::getPassword);
+    }
+
+    @BeforeAll
+    void awaitReplicaInRotation() throws InterruptedException {
+        Gauge lag = meterRegistry.get("db.replica.lag").gauge();
+        for (int i = 0; i < 100 && lag.value() != 0; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(lag.value()).isZero();
+    }
+
+    @Test
+    void readOnlyRequestIsServedByReplica() {
+        insertReplicaOnlyUser(900_001L, "replica-read@example.com");
+
+        ResponseEntity<String> response = restTemplate.getForEntity(userPageUrl(900_001L), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).contains("replica-read@example.com");
+    }
+
+    @Test
+    void cachePopulatingLookupIsServedByPrimary() {
+        insertReplicaOnlyUser(900_003L, "replica-cached@example.com");
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/api/users/900003", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void writeGoesToPrimary() {
+        String email = "primary-write@example.com";
+
+        ResponseEntity<String> response = restTemplate.postForEntity(
+                "/api/users", new UserCreateDto("Primary", email), String.class);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(countUsers(jdbcTemplate, email)).isEqualTo(1);
+        assertThat(countUsers(REPLICA, email)).isZero();
+    }
+
+    @Test
+    void readAfterWriteSticksToPrimary() {
+        insertReplicaOnlyUser(900_002L, "replica-sticky@example.com");
+
+        ResponseEntity<String> write = restTemplate.postForEntity(
+                "/api/users", new UserCreateDto("Sticky", "sticky-write@example.com"), String.class);
+        String cookie = write.getHeaders().getFirst(HttpHeaders.SET_COOKIE);
+        assertThat(cookie).startsWith(ReadYourWritesFilter.COOKIE + "=");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.COOKIE, cookie.substring(0, cookie.indexOf(';')));
+        ResponseEntity<String> read = restTemplate.exchange(
+                userPageUrl(900_002L), HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(read.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(read.getBody()).doesNotContain("replica-sticky@example.com");
+    }
+
+    /**
+     * Страница из одного пользователя, начинающаяся с указанного ID.
+     */
+    private static String userPageUrl(long id) {
+        return "/api/users?limit=1&after=" + Pagination.encodeCursor(id - 1);
+    }
+
+    private static void insertReplicaOnlyUser(long id, String email) {
+        REPLICA.update("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", id, "Replica only", email);
+    }
+
+    private static Integer countUsers(JdbcTemplate jdbc, String email) {
+        return jdbc.queryForObject("SELECT count(*) FROM users WHERE email = ?", Integer.class, email);
+    }
+
+    private static String replicaUrl() {
+        return "jdbc:postgresql://" + POSTGRES.getHost() + ":"
+                + POSTGRES.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + REPLICA_DATABASE;
+    }
+
+    /**
+     * Создаёт базу реплики и накатывает на неё миграции до старта контекста:
+     * пул реплики подключается к ней сразу при создании.
+     */
+    private static DriverManagerDataSource createReplica() {
+        try (Connection connection = DriverManager.getConnection(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE " + REPLICA_DATABASE);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot create replica database", e);
+        }
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource(replicaUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        try {
+            liquibase.afterPropertiesSet();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot migrate replica database", e);
+        }
+        return dataSource;
+    }
+}
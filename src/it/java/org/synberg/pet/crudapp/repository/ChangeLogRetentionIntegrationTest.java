@@ -0,0 +1,88 @@
+package org.synberg.pet.crudapp.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.synberg.pet.crudapp.IntegrationTestSupport;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Усечение и компактизация журнала изменений по {@code seq}.
+ * <p>
+ * Записи вставляются напрямую с заданными номерами и временем: время записи не растёт
+ * вместе с {@code seq}, и удаляться должен только префикс ленты, а граница усечения —
+ * совпадать с последней удалённой записью.
+ */
+class ChangeLogRetentionIntegrationTest extends IntegrationTestSupport {
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime OLD = CUTOFF.minusDays(30);
+    private static final LocalDateTime NEW = CUTOFF.plusDays(30);
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private long base;
+
+    @BeforeEach
+    void clearLog() {
+        jdbcTemplate.update("DELETE FROM change_log");
+        jdbcTemplate.update("UPDATE job_watermarks SET position_id = 0 WHERE name = 'change-log'");
+        // Номера выше опубликованных, чтобы фоновая публикация не выдала их повторно
+        base = jdbcTemplate.queryForObject("""
+                UPDATE job_watermarks SET position_id = position_id + 100
+                WHERE name = 'change-log-publish'
+                RETURNING position_id - 100
+                """, Long.class);
+    }
+
+    @Test
+    void truncateDeletesOnlySeqPrefixOlderThanCutoff() {
+        insert(1, 1, OLD);
+        insert(2, 2, NEW);
+        insert(3, 3, OLD);
+
+        OptionalLong deleted = transactionTemplate.execute(status -> changeLogRepository.truncate(CUTOFF, 100));
+
+        assertThat(deleted).hasValue(1);
+        assertThat(remainingSeqs()).containsExactly(base + 2, base + 3);
+        assertThat(changeLogRepository.findTruncatedSeq()).isEqualTo(base + 1);
+    }
+
+    @Test
+    void compactAdvancesTruncatedSeq() {
+        insert(1, 1, OLD);
+        insert(2, 1, OLD);
+        insert(3, 2, NEW);
+        insert(4, 2, NEW);
+
+        OptionalLong deleted = transactionTemplate.execute(status -> changeLogRepository.compact(CUTOFF, 100));
+
+        assertThat(deleted).hasValue(1);
+        assertThat(remainingSeqs()).containsExactly(base + 2, base + 3, base + 4);
+        assertThat(changeLogRepository.findTruncatedSeq()).isEqualTo(base + 1);
+    }
+
+    private void insert(long offset, long bookId, LocalDateTime changedAt) {
+        jdbcTemplate.update("""
+                INSERT INTO change_log (seq, entity, entity_id, operation, version, changed_at)
+                VALUES (?, 'BOOK', ?, 'UPDATE', 0, ?)
+                """, base + offset, bookId, changedAt);
+    }
+
+    private List<Long> remainingSeqs() {
+        return jdbcTemplate.queryForList("SELECT seq FROM change_log ORDER BY seq", Long.class);
+    }
+}
@@ -0,0 +1,174 @@
+package org.synberg.pet.crudapp.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.synberg.pet.crudapp.IntegrationTestSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Регрессия планов запросов: для каждого запроса горячих путей репозиториев выполняется
+ * {@code EXPLAIN (FORMAT JSON)} на заполненных таблицах, и тест падает, если в плане есть
+ * {@code Seq Scan} по займам, книгам или пользователям.
+ * <p>
+ * Запросы повторяют SQL, который генерируют или содержат репозитории. Последовательное
+ * сканирование запрещается на время запроса ({@code enable_seqscan = off}), поэтому оно
+ * появляется в плане только тогда, когда подходящего индекса нет совсем, и результат
+ * не зависит от размера тестовых данных и статистики.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanIntegrationTest extends IntegrationTestSupport {
+    private static final Set<String> CHECKED_RELATIONS = Set.of("loans", "loans_history", "books", "users",
+            "overdue_loans");
+    private static final int BOOKS = 2000;
+    private static final int USERS = 1000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("""
+                INSERT INTO users (name, email)
+                SELECT 'Plan user ' || g, 'plan' || g || '@example.com' FROM generate_series(1, ?) g
+                """, USERS);
+        jdbcTemplate.update("""
+                INSERT INTO books (title, author)
+                SELECT 'Plan book ' || g, 'Plan author ' || (g % 100) FROM generate_series(1, ?) g
+                """, BOOKS);
+        // По три займа на книгу: два возвращённых и один активный
+        jdbcTemplate.update("""
+                WITH b AS (SELECT id, row_number() OVER (ORDER BY id) AS rn FROM books WHERE title LIKE 'Plan book %'),
+                     u AS (SELECT id, row_number() OVER (ORDER BY id) AS rn FROM users WHERE email LIKE 'plan%@example.com')
+                INSERT INTO loans (user_id, book_id, loan_date, return_date)
+                SELECT u.id, b.id,
+                       TIMESTAMP '2025-01-01' + (b.rn * 3 + k) * INTERVAL '1 hour',
+                       CASE WHEN k < 2 THEN TIMESTAMP '2025-01-08' + (b.rn * 3 + k) * INTERVAL '1 hour' END
+                FROM b JOIN u ON u.rn = b.rn % ? + 1
+                CROSS JOIN generate_series(0, 2) k
+                """, USERS);
+        // Каждый десятый активный займ просрочен
+        jdbcTemplate.update("""
+                INSERT INTO overdue_loans (loan_id, due_date, detected_at)
+                SELECT id, loan_date + INTERVAL '14 days', LOCALTIMESTAMP FROM loans
+                WHERE return_date IS NULL AND id % 10 = 0
+                """);
+        jdbcTemplate.execute("ANALYZE users");
+        jdbcTemplate.execute("ANALYZE books");
+        jdbcTemplate.execute("ANALYZE loans");
+        jdbcTemplate.execute("ANALYZE loans_history");
+        jdbcTemplate.execute("ANALYZE overdue_loans");
+    }
+
+    static Stream<Arguments> queries() {
+        return Stream.of(
+                Arguments.of("UserRepository.findByEmail",
+                        "SELECT * FROM users WHERE email = 'plan500@example.com'"),
+                Arguments.of("UserRepository.findByIdGreaterThanOrderByIdAsc",
+                        "SELECT * FROM users WHERE id > 100 ORDER BY id LIMIT 51"),
+                Arguments.of("BookRepository.findByTitleAndAuthor",
+                        "SELECT * FROM books WHERE title = 'Plan book 1000' AND author = 'Plan author 0'"),
+                Arguments.of("BookRepository.existsByTitleAndAuthor",
+                        "SELECT id FROM books WHERE title = 'Plan book 1000' AND author = 'Plan author 0' LIMIT 1"),
+                Arguments.of("BookRepository.findByIdGreaterThanOrderByIdAsc",
+                        "SELECT * FROM books WHERE id > 100 ORDER BY id LIMIT 51"),
+                Arguments.of("BookRepository.findAvailable", """
+                        SELECT b.id, b.title, b.author, b.version FROM books b
+                        WHERE b.id > 100
+                          AND NOT EXISTS (SELECT 1 FROM loans l WHERE l.book_id = b.id AND l.return_date IS NULL)
+                        ORDER BY b.id LIMIT 51
+                        """),
+                Arguments.of("LoanRepository: active loan of a book",
+                        "SELECT id FROM loans WHERE book_id = (SELECT max(id) FROM books) AND return_date IS NULL"),
+                Arguments.of("LoanRepository.findPageFetching", """
+                        SELECT l.*, u.*, b.* FROM loans l
+                        JOIN users u ON u.id = l.user_id
+                        JOIN books b ON b.id = l.book_id
+                        WHERE l.id > 100
+                        ORDER BY l.id LIMIT 51
+                        """),
+                Arguments.of("LoanRepository.findPageFetching: overdue only", """
+                        SELECT l.*, u.*, b.* FROM loans l
+                        JOIN users u ON u.id = l.user_id
+                        JOIN books b ON b.id = l.book_id
+                        WHERE l.id > 100 AND l.return_date IS NULL
+                          AND EXISTS (SELECT 1 FROM overdue_loans o WHERE o.loan_id = l.id)
+                        ORDER BY l.id LIMIT 51
+                        """),
+                Arguments.of("LoanRepository: loans by loan date",
+                        "SELECT * FROM loans WHERE loan_date >= '2025-02-01' AND loan_date < '2025-02-02'"),
+                Arguments.of("OverdueLoanScanner: active loans after the watermark", """
+                        SELECT id, loan_date FROM loans
+                        WHERE return_date IS NULL AND (loan_date, id) > (TIMESTAMP '2025-02-01', 0)
+                        ORDER BY loan_date, id LIMIT 1000
+                        """),
+                Arguments.of("LoanRepository.findUserLoans", """
+                        SELECT * FROM (
+                            (SELECT id, user_id, book_id, loan_date, return_date FROM loans
+                             WHERE user_id = (SELECT max(id) FROM users)
+                             ORDER BY loan_date DESC, id DESC LIMIT 51)
+                            UNION ALL
+                            (SELECT id, user_id, book_id, loan_date, return_date FROM loans_history
+                             WHERE user_id = (SELECT max(id) FROM users)
+                             ORDER BY loan_date DESC, id DESC LIMIT 51)
+                        ) l ORDER BY loan_date DESC, id DESC LIMIT 51
+                        """),
+                Arguments.of("LoanRepository.findBookLoans", """
+                        SELECT * FROM (
+                            (SELECT id, user_id, book_id, loan_date, return_date FROM loans
+                             WHERE book_id = (SELECT max(id) FROM books)
+                             ORDER BY loan_date DESC, id DESC LIMIT 51)
+                            UNION ALL
+                            (SELECT id, user_id, book_id, loan_date, return_date FROM loans_history
+                             WHERE book_id = (SELECT max(id) FROM books)
+                             ORDER BY loan_date DESC, id DESC LIMIT 51)
+                        ) l ORDER BY loan_date DESC, id DESC LIMIT 51
+                        """),
+                Arguments.of("FK check on user delete",
+                        "SELECT 1 FROM loans WHERE user_id = (SELECT max(id) FROM users) LIMIT 1"),
+                Arguments.of("FK check on book delete",
+                        "SELECT 1 FROM loans WHERE book_id = (SELECT max(id) FROM books) LIMIT 1")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("queries")
+    void queryUsesIndexes(String name, String sql) throws Exception {
+        String plan = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            return jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class);
+        });
+
+        List<String> seqScans = new ArrayList<>();
+        collectSeqScans(objectMapper.readTree(plan).get(0).get("Plan"), seqScans);
+        assertThat(seqScans).as("Seq Scan in plan of %s:%n%s", name, plan).isEmpty();
+    }
+
+    private static void collectSeqScans(JsonNode node, List<String> seqScans) {
+        String relation = node.path("Relation Name").asText();
+        if ("Seq Scan".equals(node.path("Node Type").asText()) && CHECKED_RELATIONS.contains(relation)) {
+            seqScans.add(relation);
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSeqScans(child, seqScans);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.synberg.pet.crudapp;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Запуск контекста приложения для бенчмарков, работающих с базой данных.
+ * <p>
+ * Подключение берётся из обычной конфигурации ({@code spring.datasource.*},
+ * {@code SPRING_DATASOURCE_USERNAME}/{@code SPRING_DATASOURCE_PASSWORD}),
+ * поэтому достаточно поднять PostgreSQL из {@code docker-compose.yml}.
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(CrudAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false")
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * Запускает приложение со встроенным веб-сервером на случайном порту.
+     *
+     * @param profile активный профиль Spring ({@code default} — режим по умолчанию)
+     */
+    public static ConfigurableApplicationContext startWeb(String profile, String... properties) {
+        return new SpringApplicationBuilder(CrudAppApplication.class)
+                .profiles(profile)
+                .properties("spring.jpa.show-sql=false", "server.port=0")
+                .properties(properties)
+                .run();
+    }
+}
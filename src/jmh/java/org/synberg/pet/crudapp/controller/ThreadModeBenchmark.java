@@ -0,0 +1,106 @@
+package org.synberg.pet.crudapp.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.synberg.pet.crudapp.BenchmarkApplication;
+import org.synberg.pet.crudapp.dto.create.BookCreateDto;
+import org.synberg.pet.crudapp.dto.create.LoanCreateDto;
+import org.synberg.pet.crudapp.dto.create.UserCreateDto;
+import org.synberg.pet.crudapp.repository.BookRepository;
+import org.synberg.pet.crudapp.repository.UserRepository;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Сравнение режимов платформенных и виртуальных потоков на смеси выдач и возвратов
+ * через HTTP ({@code POST /api/loans}, {@code PATCH /api/loans/{id}/return}).
+ * <p>
+ * Клиентских потоков больше, чем потоков Tomcat по умолчанию (200), чтобы
+ * в режиме платформенных потоков ({@code default}) запросы ожидали в очереди сервера.
+ * Счётчики {@code checkouts}/{@code conflicts}/{@code errors} показывают исходы запросов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(400)
+public class ThreadModeBenchmark {
+    private static final int BOOKS = 2_000;
+    private static final String AUTHOR = "Thread Mode Author";
+    private static final String EMAIL = "thread-mode@example.com";
+
+    @Param({"default", "virtual"})
+    public String profile;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private ObjectMapper objectMapper;
+    private URI loans;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long checkouts;
+        public long conflicts;
+        public long errors;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startWeb(profile);
+        context.getBean(BookRepository.class).insertIgnoringDuplicates(IntStream.range(0, BOOKS)
+                .mapToObj(i -> new BookCreateDto("Thread Mode Book " + i, AUTHOR))
+                .toList());
+        context.getBean(UserRepository.class).insertIgnoringDuplicates(
+                List.of(new UserCreateDto("Thread Mode", EMAIL)));
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        loans = URI.create("http://localhost:" + port + "/api/loans");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public void checkoutAndReturn(Counters counters) throws IOException, InterruptedException {
+        String body = objectMapper.writeValueAsString(new LoanCreateDto(
+                EMAIL, "Thread Mode Book " + ThreadLocalRandom.current().nextInt(BOOKS), AUTHOR));
+        HttpResponse<String> created = client.send(HttpRequest.newBuilder(loans)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (created.statusCode() == 400) {
+            counters.conflicts++;
+            return;
+        }
+        if (created.statusCode() >= 300) {
+            counters.errors++;
+            return;
+        }
+        counters.checkouts++;
+        long id = objectMapper.readTree(created.body()).get("id").asLong();
+        HttpResponse<Void> returned = client.send(HttpRequest.newBuilder(loans.resolve("/api/loans/" + id + "/return"))
+                .method("PATCH", HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (returned.statusCode() >= 300) {
+            counters.errors++;
+        }
+    }
+}
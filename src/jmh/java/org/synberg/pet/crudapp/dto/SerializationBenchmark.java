@@ -0,0 +1,53 @@
+package org.synberg.pet.crudapp.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson-сериализация списка {@link LoanDto} разного размера.
+ * <p>
+ * {@link ObjectMapper} собирается тем же {@link Jackson2ObjectMapperBuilder},
+ * что и в приложении (модуль JavaTime, даты в ISO-формате).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<LoanDto> loans;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        loans = new ArrayList<>(size);
+        LocalDateTime loanDate = LocalDateTime.of(2025, 1, 15, 10, 30);
+        for (long i = 1; i <= size; i++) {
+            loans.add(new LoanDto(
+                    i,
+                    new UserDto(i % 1000, "User " + (i % 1000), "user" + (i % 1000) + "@example.com", 0L),
+                    new BookDto(i, "Book title " + i, "Author " + (i % 500), i % 3 != 0, 1L),
+                    loanDate.plusMinutes(i),
+                    i % 3 == 0 ? null : loanDate.plusDays(14).plusMinutes(i),
+                    i % 3 == 0 ? 0L : 1L
+            ));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeLoans() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(loans);
+    }
+}
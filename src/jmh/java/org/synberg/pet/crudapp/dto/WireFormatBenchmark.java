@@ -0,0 +1,96 @@
+package org.synberg.pet.crudapp.dto;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Размер и время сериализации списка {@link LoanDto} в JSON, CBOR и Smile, без сжатия и с gzip.
+ * <p>
+ * Мапперы настроены как в приложении: JSON пишет даты ISO-строками, двоичные форматы — числами.
+ * Размер ответа выводится счётчиками {@code bytes} и {@code gzipBytes}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<LoanDto> loans;
+    private JavaType listType;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor()
+                    .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile()
+                    .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+            default -> throw new IllegalArgumentException(format);
+        };
+        loans = new ArrayList<>(size);
+        LocalDateTime loanDate = LocalDateTime.of(2025, 1, 15, 10, 30);
+        for (long i = 1; i <= size; i++) {
+            loans.add(new LoanDto(
+                    i,
+                    new UserDto(i % 1000, "User " + (i % 1000), "user" + (i % 1000) + "@example.com", 0L),
+                    new BookDto(i, "Book title " + i, "Author " + (i % 500), i % 3 != 0, 1L),
+                    loanDate.plusMinutes(i),
+                    i % 3 == 0 ? null : loanDate.plusDays(14).plusMinutes(i),
+                    i % 3 == 0 ? 0L : 1L
+            ));
+        }
+        listType = objectMapper.getTypeFactory().constructCollectionType(List.class, LoanDto.class);
+        payload = objectMapper.writeValueAsBytes(loans);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        public long bytes;
+        public long gzipBytes;
+    }
+
+    @Benchmark
+    public byte[] serialize(PayloadSize payloadSize) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(loans);
+        payloadSize.bytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] serializeGzip(PayloadSize payloadSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(gzip, loans);
+        }
+        byte[] bytes = out.toByteArray();
+        payloadSize.gzipBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public List<LoanDto> deserialize() throws IOException {
+        return objectMapper.readValue(payload, listType);
+    }
+}
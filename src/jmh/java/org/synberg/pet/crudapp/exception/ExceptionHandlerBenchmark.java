@@ -0,0 +1,62 @@
+package org.synberg.pet.crudapp.exception;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.synberg.pet.crudapp.dto.create.BookCreateDto;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Формирование тел ошибок в {@link GlobalExceptionHandler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExceptionHandlerBenchmark {
+    private GlobalExceptionHandler handler;
+    private NotFoundException notFound;
+    private AlreadyExistsException alreadyExists;
+    private MethodArgumentNotValidException notValid;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        handler = new GlobalExceptionHandler();
+        notFound = new NotFoundException("Book not found");
+        alreadyExists = new AlreadyExistsException("Book is already loaned");
+
+        BeanPropertyBindingResult bindingResult =
+                new BeanPropertyBindingResult(new BookCreateDto("", ""), "bookCreateDto");
+        bindingResult.addError(new FieldError("bookCreateDto", "title", "Title is required"));
+        bindingResult.addError(new FieldError("bookCreateDto", "author", "Author is required"));
+        MethodParameter parameter = new MethodParameter(
+                ExceptionHandlerBenchmark.class.getDeclaredMethod("target", BookCreateDto.class), 0);
+        notValid = new MethodArgumentNotValidException(parameter, bindingResult);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, String>> notFound() {
+        return handler.handleNotFoundException(notFound);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, String>> alreadyExists() {
+        return handler.handleAlreadyExistsException(alreadyExists);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, String>> validation() {
+        return handler.handleValidationExceptions(notValid);
+    }
+
+    @SuppressWarnings("unused")
+    private void target(BookCreateDto dto) {
+    }
+}
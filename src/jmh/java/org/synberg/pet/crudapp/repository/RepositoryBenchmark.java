@@ -0,0 +1,84 @@
+package org.synberg.pet.crudapp.repository;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.synberg.pet.crudapp.BenchmarkApplication;
+import org.synberg.pet.crudapp.dto.create.BookCreateDto;
+import org.synberg.pet.crudapp.dto.create.UserCreateDto;
+import org.synberg.pet.crudapp.entity.Book;
+import org.synberg.pet.crudapp.entity.Loan;
+import org.synberg.pet.crudapp.entity.User;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Операции репозиториев против локального PostgreSQL.
+ * <p>
+ * Перед запуском поднимите базу из {@code docker-compose.yml}; недостающие
+ * тестовые данные создаются при старте бенчмарка.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RepositoryBenchmark {
+    private static final int SEED_SIZE = 10_000;
+    private static final String SEED_AUTHOR = "Benchmark Author";
+
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+    private UserRepository userRepository;
+    private LoanRepository loanRepository;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        bookRepository = context.getBean(BookRepository.class);
+        userRepository = context.getBean(UserRepository.class);
+        loanRepository = context.getBean(LoanRepository.class);
+
+        bookRepository.insertIgnoringDuplicates(IntStream.range(0, SEED_SIZE)
+                .mapToObj(i -> new BookCreateDto("Benchmark Book " + i, SEED_AUTHOR))
+                .toList());
+        userRepository.insertIgnoringDuplicates(IntStream.range(0, SEED_SIZE)
+                .mapToObj(i -> new UserCreateDto("Benchmark User " + i, "bench" + i + "@example.com"))
+                .toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Book> findBookByTitleAndAuthor() {
+        return bookRepository.findByTitleAndAuthor("Benchmark Book " + nextProbe(), SEED_AUTHOR);
+    }
+
+    @Benchmark
+    public Optional<User> findUserByEmail() {
+        return userRepository.findByEmail("bench" + nextProbe() + "@example.com");
+    }
+
+    @Benchmark
+    public List<Book> bookPage() {
+        return bookRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(51));
+    }
+
+    @Benchmark
+    public List<Loan> loanPage() {
+        return loanRepository.findPageFetching(0L, 51, true, true, false);
+    }
+
+    private int nextProbe() {
+        probe = (probe + 7919) % SEED_SIZE;
+        return probe;
+    }
+}
@@ -0,0 +1,88 @@
+package org.synberg.pet.crudapp.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.synberg.pet.crudapp.BenchmarkApplication;
+import org.synberg.pet.crudapp.dto.LoanDto;
+import org.synberg.pet.crudapp.dto.create.BookCreateDto;
+import org.synberg.pet.crudapp.dto.create.LoanCreateDto;
+import org.synberg.pet.crudapp.dto.create.UserCreateDto;
+import org.synberg.pet.crudapp.exception.AlreadyExistsException;
+import org.synberg.pet.crudapp.repository.BookRepository;
+import org.synberg.pet.crudapp.repository.UserRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конкурентная выдача одной популярной книги многими клиентами.
+ * <p>
+ * Каждый поток пытается выдать книгу и сразу возвращает её при успехе.
+ * Счётчики {@code checkouts}/{@code conflicts} показывают пропускную способность
+ * успешных выдач и отказов. После каждой итерации проверяется, что у книги
+ * не больше одного активного займа, иначе бенчмарк падает.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class CheckoutContentionBenchmark {
+    private static final String TITLE = "Contended Book";
+    private static final String AUTHOR = "Benchmark Author";
+    private static final String EMAIL = "contention@example.com";
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private LoanService loanService;
+    private LoanCreateDto request;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long checkouts;
+        public long conflicts;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        context.getBean(BookRepository.class).insertIgnoringDuplicates(List.of(new BookCreateDto(TITLE, AUTHOR)));
+        context.getBean(UserRepository.class).insertIgnoringDuplicates(List.of(new UserCreateDto("Contention", EMAIL)));
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        loanService = context.getBean(LoanService.class);
+        request = new LoanCreateDto(EMAIL, TITLE, AUTHOR);
+    }
+
+    @TearDown(Level.Iteration)
+    public void verifySingleActiveLoan() {
+        Integer active = jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM loans l JOIN books b ON b.id = l.book_id
+                WHERE b.title = ? AND b.author = ? AND l.return_date IS NULL
+                """, Integer.class, TITLE, AUTHOR);
+        if (active != null && active > 1) {
+            throw new IllegalStateException("Book has " + active + " active loans");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void checkoutAndReturn(Counters counters) {
+        LoanDto loan;
+        try {
+            loan = loanService.create(request);
+        } catch (AlreadyExistsException e) {
+            counters.conflicts++;
+            return;
+        }
+        counters.checkouts++;
+        loanService.returnLoan(loan.id());
+    }
+}
@@ -0,0 +1,55 @@
+package org.synberg.pet.crudapp.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.synberg.pet.crudapp.dto.BookDto;
+import org.synberg.pet.crudapp.dto.LoanDto;
+import org.synberg.pet.crudapp.entity.Book;
+import org.synberg.pet.crudapp.entity.Loan;
+import org.synberg.pet.crudapp.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразование сущностей в DTO в {@link LoanService} и {@link BookService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+    private Book book;
+    private Loan loan;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(1L);
+        user.setName("Ivan Petrov");
+        user.setEmail("ivan.petrov@example.com");
+
+        book = new Book();
+        book.setId(2L);
+        book.setTitle("War and Peace");
+        book.setAuthor("Leo Tolstoy");
+
+        loan = new Loan();
+        loan.setId(3L);
+        loan.setUser(user);
+        loan.setBook(book);
+        loan.setLoanDate(LocalDateTime.of(2025, 1, 15, 10, 30));
+        loan.setReturnDate(LocalDateTime.of(2025, 2, 1, 18, 0));
+    }
+
+    @Benchmark
+    public BookDto bookToDto() {
+        return BookService.toDto(book, true);
+    }
+
+    @Benchmark
+    public LoanDto loanToDto() {
+        return LoanService.toDto(loan, true);
+    }
+}
@@ -0,0 +1,83 @@
+package org.synberg.pet.crudapp.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.synberg.pet.crudapp.BenchmarkApplication;
+import org.synberg.pet.crudapp.dto.BookDto;
+import org.synberg.pet.crudapp.dto.PageDto;
+import org.synberg.pet.crudapp.dto.create.BookCreateDto;
+import org.synberg.pet.crudapp.repository.BookRepository;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Задержки полнотекстового поиска и автодополнения на 1 млн книг.
+ * <p>
+ * Книги с названиями из трёх слов словаря создаются при первом запуске
+ * (автор {@value #AUTHOR}) и переиспользуются в следующих.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchBenchmark {
+    private static final int BOOKS = 1_000_000;
+    private static final int CHUNK = 10_000;
+    private static final String AUTHOR = "Search Benchmark Author";
+    private static final String[] WORDS = {
+            "ancient", "silent", "river", "shadow", "garden", "winter", "empire", "stone", "light", "ocean",
+            "forest", "secret", "city", "storm", "crown", "mirror", "journey", "night", "iron", "glass",
+            "dragon", "harbor", "letters", "machine", "memory", "northern", "orchard", "paper", "quiet", "summer"
+    };
+    private static final String[] QUERIES = {"river shadow", "winter -garden", "\"silent ocean\"", "dragon or crown"};
+    private static final String[] PREFIXES = {"anc", "silent riv", "gardne", "mirror of", "nort"};
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        bookService = context.getBean(BookService.class);
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        Integer existing = context.getBean(JdbcTemplate.class)
+                .queryForObject("SELECT count(*) FROM books WHERE author = ?", Integer.class, AUTHOR);
+        for (int from = existing == null ? 0 : existing; from < BOOKS; from += CHUNK) {
+            bookRepository.insertIgnoringDuplicates(IntStream.range(from, Math.min(from + CHUNK, BOOKS))
+                    .mapToObj(i -> new BookCreateDto(title(i), AUTHOR))
+                    .toList());
+        }
+        context.getBean(JdbcTemplate.class).execute("ANALYZE books");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PageDto<BookDto> search() {
+        return bookService.search(QUERIES[ThreadLocalRandom.current().nextInt(QUERIES.length)], null, 20);
+    }
+
+    @Benchmark
+    public PageDto<BookDto> searchSecondPage() {
+        PageDto<BookDto> first = bookService.search(QUERIES[0], null, 20);
+        return bookService.search(QUERIES[0], first.nextCursor(), 20);
+    }
+
+    @Benchmark
+    public PageDto<BookDto> autocomplete() {
+        return bookService.autocomplete(PREFIXES[ThreadLocalRandom.current().nextInt(PREFIXES.length)], null, 10);
+    }
+
+    private static String title(int i) {
+        int n = WORDS.length;
+        return WORDS[i % n] + " " + WORDS[i / n % n] + " " + WORDS[i / n / n % n] + " " + i;
+    }
+}
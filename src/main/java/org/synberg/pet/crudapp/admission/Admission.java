@@ -0,0 +1,18 @@
+package org.synberg.pet.crudapp.admission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Параметры допуска для метода контроллера; без аннотации используется {@link Priority#HIGH}.
+ * <p>
+ * Значения можно переопределить в {@code app.admission.endpoints[Controller.method].*}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Admission {
+
+    Priority priority();
+}
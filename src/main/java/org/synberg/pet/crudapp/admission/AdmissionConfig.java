@@ -0,0 +1,27 @@
+package org.synberg.pet.crudapp.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Ограничение одновременных запросов к {@code /api/**} и сброс нагрузки при перегрузке пула соединений.
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+@RequiredArgsConstructor
+public class AdmissionConfig implements WebMvcConfigurer {
+    private final AdmissionProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (properties.enabled()) {
+            registry.addInterceptor(new AdmissionInterceptor(properties, meterRegistry))
+                    .addPathPatterns("/api/**");
+        }
+    }
+}
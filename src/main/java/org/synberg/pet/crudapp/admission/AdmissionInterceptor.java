@@ -0,0 +1,151 @@
+package org.synberg.pet.crudapp.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.synberg.pet.crudapp.exception.ServiceUnavailableException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Допуск запросов к методам контроллеров.
+ * <p>
+ * У каждого метода свой {@link AimdLimiter}; запрос сверх предела сразу получает {@code 503}
+ * с {@code Retry-After} вместо ожидания соединения в пуле. Пока потоки ждут соединение —
+ * в пулах ({@code hikaricp.connections.pending}) или перед ними на семафоре доступа к базе
+ * ({@code db.access.waiting}, профиль {@code virtual}), — запросы {@link Priority#LOW}
+ * отклоняются первыми, чтобы соединения достались дешёвым запросам. Порог для них по умолчанию
+ * пропорционален суммарному размеру пулов ({@code hikaricp.connections.max}), поэтому
+ * небольшая очередь за соединением их не отсекает. Метрики ищутся заново не реже раза
+ * в секунду, поэтому учитываются и пулы реплик, и пулы, подключившиеся позже.
+ * <p>
+ * Метрики с тегом {@code handler}: {@code http.admission.limit}, {@code http.admission.inflight}
+ * и {@code http.admission.rejected} с тегом {@code reason} ({@code limit} или {@code db-pool}).
+ */
+class AdmissionInterceptor implements AsyncHandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".permit";
+    private static final List<String> WAITING_METRICS = List.of("hikaricp.connections.pending", "db.access.waiting");
+    private static final String POOL_SIZE_METRIC = "hikaricp.connections.max";
+    private static final long GAUGE_LOOKUP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AdmissionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<HandlerMethod, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private volatile Collection<Gauge> waitingGauges = List.of();
+    private volatile Collection<Gauge> poolSizeGauges = List.of();
+    private volatile long gaugesLookedUpAt = System.nanoTime() - GAUGE_LOOKUP_INTERVAL_NANOS;
+
+    AdmissionInterceptor(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod method) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        Endpoint endpoint = endpoints.computeIfAbsent(method, this::endpoint);
+        double pending = pendingConnections();
+        int maxPending = endpoint.priority() == Priority.LOW ? lowPriorityMaxPending() : properties.maxPending();
+        if (pending >= maxPending) {
+            endpoint.rejectedByPool().increment();
+            throw new ServiceUnavailableException("Database is overloaded", properties.retryAfter());
+        }
+        if (!endpoint.limiter().tryAcquire()) {
+            endpoint.rejectedByLimit().increment();
+            throw new ServiceUnavailableException("Too many concurrent requests", properties.retryAfter());
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(endpoint.limiter(), System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Потоковые выгрузки и длинный опрос: место освобождается, когда обработчик отдал поток
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permit.limiter().releaseWithoutSample();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permit.limiter().release(System.nanoTime() - permit.startNanos(), ex != null || response.getStatus() >= 500);
+        }
+    }
+
+    private double pendingConnections() {
+        Collection<Gauge> gauges = waitingGauges;
+        long now = System.nanoTime();
+        if (now - gaugesLookedUpAt >= GAUGE_LOOKUP_INTERVAL_NANOS) {
+            // Пулы регистрируют метрики при первом подключении, пулы реплик — отдельно от основного
+            gauges = WAITING_METRICS.stream()
+                    .flatMap(name -> meterRegistry.find(name).gauges().stream())
+                    .toList();
+            waitingGauges = gauges;
+            poolSizeGauges = meterRegistry.find(POOL_SIZE_METRIC).gauges();
+            gaugesLookedUpAt = now;
+        }
+        return sum(gauges);
+    }
+
+    private int lowPriorityMaxPending() {
+        if (properties.lowPriorityMaxPending() != null) {
+            return properties.lowPriorityMaxPending();
+        }
+        return Math.max(1, (int) Math.ceil(sum(poolSizeGauges) * properties.lowPriorityPendingRatio()));
+    }
+
+    private static double sum(Collection<Gauge> gauges) {
+        double sum = 0;
+        for (Gauge gauge : gauges) {
+            sum += gauge.value();
+        }
+        return sum;
+    }
+
+    private Endpoint endpoint(HandlerMethod method) {
+        String name = method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+        AdmissionProperties.Endpoint overrides = properties.endpoints().get(name);
+        Admission admission = method.getMethodAnnotation(Admission.class);
+        Priority priority = overrides != null && overrides.priority() != null ? overrides.priority()
+                : admission != null ? admission.priority()
+                : Priority.HIGH;
+        AimdLimiter limiter = new AimdLimiter(
+                overrides != null && overrides.initialLimit() != null ? overrides.initialLimit() : properties.initialLimit(),
+                overrides != null && overrides.minLimit() != null ? overrides.minLimit() : properties.minLimit(),
+                overrides != null && overrides.maxLimit() != null ? overrides.maxLimit() : properties.maxLimit(),
+                properties.backoffRatio(),
+                (overrides != null && overrides.latencyThreshold() != null
+                        ? overrides.latencyThreshold() : properties.latencyThreshold()).toNanos());
+        Gauge.builder("http.admission.limit", limiter, AimdLimiter::limit)
+                .tag("handler", name)
+                .register(meterRegistry);
+        Gauge.builder("http.admission.inflight", limiter, AimdLimiter::inFlight)
+                .tag("handler", name)
+                .register(meterRegistry);
+        return new Endpoint(priority, limiter,
+                Counter.builder("http.admission.rejected").tag("handler", name).tag("reason", "limit")
+                        .register(meterRegistry),
+                Counter.builder("http.admission.rejected").tag("handler", name).tag("reason", "db-pool")
+                        .register(meterRegistry));
+    }
+
+    private record Endpoint(Priority priority, AimdLimiter limiter, Counter rejectedByLimit, Counter rejectedByPool) {
+    }
+
+    private record Permit(AimdLimiter limiter, long startNanos) {
+    }
+}
@@ -0,0 +1,52 @@
+package org.synberg.pet.crudapp.admission;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Настройки допуска запросов ({@code app.admission.*}).
+ *
+ * @param enabled включено ли ограничение
+ * @param initialLimit начальный предел одновременных запросов к одному методу
+ * @param minLimit нижняя граница предела
+ * @param maxLimit верхняя граница предела
+ * @param backoffRatio во сколько раз уменьшается предел при перегрузке
+ * @param latencyThreshold запрос дольше порога считается признаком перегрузки
+ * @param lowPriorityMaxPending при стольких ожидающих соединения потоках отклоняются запросы {@link Priority#LOW};
+ *                              если не задано, порог — {@code lowPriorityPendingRatio} от суммарного размера пулов
+ * @param lowPriorityPendingRatio доля суммарного размера пулов для порога запросов {@link Priority#LOW}
+ * @param maxPending при стольких ожидающих соединения потоках отклоняются все запросы
+ * @param retryAfter значение заголовка {@code Retry-After} в ответе {@code 503}
+ * @param endpoints переопределения для методов по ключу {@code Controller.method}
+ */
+@ConfigurationProperties("app.admission")
+public record AdmissionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("20") int initialLimit,
+        @DefaultValue("2") int minLimit,
+        @DefaultValue("200") int maxLimit,
+        @DefaultValue("0.9") double backoffRatio,
+        @DefaultValue("1s") Duration latencyThreshold,
+        Integer lowPriorityMaxPending,
+        @DefaultValue("0.5") double lowPriorityPendingRatio,
+        @DefaultValue("20") int maxPending,
+        @DefaultValue("1s") Duration retryAfter,
+        @DefaultValue Map<String, Endpoint> endpoints
+) {
+
+    /**
+     * Переопределения для одного метода контроллера; незаданные значения берутся из общих настроек.
+     *
+     * @param priority приоритет
+     * @param initialLimit начальный предел
+     * @param minLimit нижняя граница предела
+     * @param maxLimit верхняя граница предела
+     * @param latencyThreshold порог задержки
+     */
+    public record Endpoint(Priority priority, Integer initialLimit, Integer minLimit, Integer maxLimit,
+                           Duration latencyThreshold) {
+    }
+}
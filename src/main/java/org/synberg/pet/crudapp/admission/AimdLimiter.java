@@ -0,0 +1,67 @@
+package org.synberg.pet.crudapp.admission;
+
+/**
+ * Адаптивный предел одновременных запросов (additive increase, multiplicative decrease).
+ * <p>
+ * Пока запросы укладываются в порог задержки и выполняется не меньше половины предела,
+ * предел растёт на единицу; при превышении порога или ошибке уменьшается в {@code backoffRatio} раз.
+ */
+class AimdLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private double limit;
+    private int inFlight;
+
+    AimdLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long latencyThresholdNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    /**
+     * Пытается занять место под запрос.
+     *
+     * @return {@code false}, если предел исчерпан
+     */
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Освобождает место и корректирует предел по результату запроса.
+     *
+     * @param latencyNanos время выполнения запроса
+     * @param failed завершился ли запрос ошибкой сервера
+     */
+    synchronized void release(long latencyNanos, boolean failed) {
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        inFlight--;
+    }
+
+    /**
+     * Освобождает место без корректировки предела, например при переходе запроса в асинхронный режим.
+     */
+    synchronized void releaseWithoutSample() {
+        inFlight--;
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,11 @@
+package org.synberg.pet.crudapp.admission;
+
+/**
+ * Приоритет метода контроллера при нехватке соединений с базой данных.
+ */
+public enum Priority {
+    /** Дешёвые запросы; отклоняются только при сильной перегрузке пула. */
+    HIGH,
+    /** Дорогие запросы (списки, поиск, выгрузки, массовый импорт); отклоняются первыми. */
+    LOW
+}
@@ -0,0 +1,95 @@
+package org.synberg.pet.crudapp.concurrency;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link DataSource}, ограничивающий число одновременно занятых соединений семафором.
+ * <p>
+ * При работе на виртуальных потоках тысячи запросов могут одновременно запросить
+ * соединение. Семафор выстраивает их в честную очередь с ограниченным временем
+ * ожидания и не даёт им всем толпиться в пуле HikariCP; при превышении ожидания
+ * запрос сразу получает {@link SQLTransientConnectionException}.
+ * <p>
+ * Время ожидания разрешения не вычитается из ожидания соединения в целевом пуле:
+ * после получения разрешения пул может ждать ещё до своего {@code connectionTimeout}.
+ */
+class DbAccessLimitingDataSource extends DelegatingDataSource {
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+
+    DbAccessLimitingDataSource(DataSource target, int maxConcurrent, Duration acquireTimeout) {
+        super(target);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    int waitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasing(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasing(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("Database access limit reached");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for database access", e);
+        }
+    }
+
+    private Connection releasing(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                DbAccessLimitingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    } finally {
+                        if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                });
+    }
+}
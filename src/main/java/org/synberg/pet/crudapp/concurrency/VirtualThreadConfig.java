@@ -0,0 +1,109 @@
+package org.synberg.pet.crudapp.concurrency;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Режим работы на виртуальных потоках Java 21 (профиль {@code virtual}).
+ * <p>
+ * Сам перевод Tomcat и асинхронных задач на виртуальные потоки делает
+ * {@code spring.threads.virtual.enabled=true} в {@code application-virtual.properties}.
+ * Здесь доступ к каждому пулу соединений ограничивается семафором на
+ * {@code app.db.max-concurrent-access} разрешений (по умолчанию — размер пула) с ожиданием
+ * не дольше {@code app.db.acquire-timeout} (по умолчанию — {@code connectionTimeout} пула),
+ * а очередь публикуется в метриках {@code db.access.waiting} и {@code db.access.available}
+ * с тегом {@code pool}.
+ */
+@Configuration
+@Profile("virtual")
+public class VirtualThreadConfig {
+
+    @Bean
+    public static DbAccessLimitingDataSourcePostProcessor dbAccessLimitingDataSourcePostProcessor(
+            Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        Integer maxConcurrent = binder.bind("app.db.max-concurrent-access", Integer.class).orElse(null);
+        Duration acquireTimeout = binder.bind("app.db.acquire-timeout", Duration.class).orElse(null);
+        return new DbAccessLimitingDataSourcePostProcessor(maxConcurrent, acquireTimeout, meterRegistry);
+    }
+
+    @Bean
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(Environment environment,
+                                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        Duration threshold = Binder.get(environment)
+                .bind("app.virtual-threads.pinning-threshold", Duration.class)
+                .orElse(Duration.ofMillis(20));
+        return new VirtualThreadPinningMonitor(threshold, meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * Ставит семафор перед каждым физическим пулом HikariCP (основной базы и реплик),
+     * но не перед маршрутизирующим {@code DataSource} над ними.
+     * <p>
+     * Ожидание разрешения и ожидание соединения в HikariCP ограничены по отдельности:
+     * сначала до {@code app.db.acquire-timeout} в очереди семафора, затем до {@code connectionTimeout}
+     * в пуле, то есть в худшем случае их сумма. Пока разрешений не больше размера пула, держатель
+     * разрешения почти не ждёт в пуле: свободное соединение есть или создаётся, а полное
+     * {@code connectionTimeout} набегает, только если пул занят в обход семафора или соединения
+     * не удаётся открыть.
+     */
+    static class DbAccessLimitingDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+        private final Integer maxConcurrent;
+        private final Duration acquireTimeout;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        DbAccessLimitingDataSourcePostProcessor(Integer maxConcurrent, Duration acquireTimeout,
+                                                ObjectProvider<MeterRegistry> meterRegistry) {
+            this.maxConcurrent = maxConcurrent;
+            this.acquireTimeout = acquireTimeout;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            try {
+                if (!(bean instanceof DataSource dataSource)
+                        || !dataSource.isWrapperFor(HikariDataSource.class)
+                        || dataSource.isWrapperFor(DbAccessLimitingDataSource.class)) {
+                    return bean;
+                }
+                HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+                DbAccessLimitingDataSource limited = new DbAccessLimitingDataSource(dataSource,
+                        maxConcurrent != null ? maxConcurrent : pool.getMaximumPoolSize(),
+                        acquireTimeout != null ? acquireTimeout : Duration.ofMillis(pool.getConnectionTimeout()));
+                String poolName = pool.getPoolName() != null ? pool.getPoolName() : beanName;
+                meterRegistry.ifAvailable(registry -> {
+                    Gauge.builder("db.access.waiting", limited, DbAccessLimitingDataSource::waitingThreads)
+                            .description("Threads waiting for a database access permit")
+                            .tag("pool", poolName)
+                            .register(registry);
+                    Gauge.builder("db.access.available", limited, DbAccessLimitingDataSource::availablePermits)
+                            .description("Free database access permits")
+                            .tag("pool", poolName)
+                            .register(registry);
+                });
+                return limited;
+            } catch (SQLException e) {
+                throw new IllegalStateException("Cannot inspect DataSource " + beanName, e);
+            }
+        }
+
+        @Override
+        public int getOrder() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.synberg.pet.crudapp.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.time.Duration;
+
+/**
+ * Диагностика закрепления (pinning) виртуальных потоков за потоками-носителями.
+ * <p>
+ * Подписывается на JFR-событие {@code jdk.VirtualThreadPinned}: каждое закрепление дольше
+ * порога пишется в лог с верхним кадром стека и учитывается в метрике
+ * {@code jvm.threads.virtual.pinned}.
+ */
+@Slf4j
+class VirtualThreadPinningMonitor implements InitializingBean, DisposableBean {
+    private final Duration threshold;
+    private final Counter pinned;
+    private RecordingStream stream;
+
+    VirtualThreadPinningMonitor(Duration threshold, MeterRegistry meterRegistry) {
+        this.threshold = threshold;
+        this.pinned = meterRegistry == null ? null : Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual thread pinning events longer than the threshold")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        stream.startAsync();
+    }
+
+    @Override
+    public void destroy() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        if (pinned != null) {
+            pinned.increment();
+        }
+        String frame = event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()
+                ? "unknown"
+                : describe(event.getStackTrace().getFrames().getFirst());
+        log.warn("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), frame);
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+}
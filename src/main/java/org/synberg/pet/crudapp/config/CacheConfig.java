@@ -0,0 +1,46 @@
+package org.synberg.pet.crudapp.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Кэширование DTO книг и пользователей.
+ * <p>
+ * Размер и TTL задаются свойством {@code spring.cache.caffeine.spec},
+ * статистика попаданий публикуется через Actuator ({@code cache.gets}).
+ * <p>
+ * Запись и удаление в кэше внутри транзакции откладываются до её фиксации, поэтому
+ * {@code @CachePut} и {@code @CacheEvict} на транзакционных методах не зависят от порядка
+ * советов кэша и транзакции: значение не попадает в кэш до фиксации и не попадает вовсе,
+ * если фиксация не удалась.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String BOOKS = "books";
+    public static final String BOOKS_BY_TITLE_AND_AUTHOR = "booksByTitleAndAuthor";
+    public static final String USERS = "users";
+    public static final String USERS_BY_EMAIL = "usersByEmail";
+
+    @Bean
+    public static TransactionAwareCachePostProcessor transactionAwareCachePostProcessor() {
+        return new TransactionAwareCachePostProcessor();
+    }
+
+    /**
+     * Оборачивает автоконфигурированный {@link CacheManager} в {@link TransactionAwareCacheManagerProxy}.
+     */
+    static class TransactionAwareCachePostProcessor implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            return bean instanceof CacheManager cacheManager && !(bean instanceof TransactionAwareCacheManagerProxy)
+                    ? new TransactionAwareCacheManagerProxy(cacheManager)
+                    : bean;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.synberg.pet.crudapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import javax.sql.DataSource;
+
+/**
+ * Подключения к базе данных: JDBC-пул для JPA и R2DBC для реактивного чтения.
+ * <p>
+ * При наличии R2DBC {@code ConnectionFactory} автоконфигурация Spring Boot не создаёт
+ * JDBC {@code DataSource}, поэтому он объявлен здесь явно и настраивается теми же
+ * свойствами {@code spring.datasource.*} и {@code spring.datasource.hikari.*}.
+ * Бин объявлен как {@link DataSource}: пост-процессоры заменяют пул обёртками
+ * (маршрутизация на реплики, подсчёт операторов), и внедрять его как {@code HikariDataSource} нельзя.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public DataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+}
@@ -0,0 +1,33 @@
+package org.synberg.pet.crudapp.config;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+/**
+ * ETag для страниц списков.
+ * <p>
+ * Страница собирается из многих записей, поэтому её ETag — хэш тела ответа
+ * ({@link ShallowEtagHeaderFilter}): при совпадении с {@code If-None-Match} клиент получает
+ * {@code 304} без тела. Фильтр буферизует ответ, поэтому подключён только к спискам,
+ * а не к потоковым выгрузкам. Отдельные ресурсы получают ETag по версии в контроллерах.
+ */
+@Configuration
+public class EtagConfig {
+
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> listEtagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration =
+                new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns(
+                "/api/users",
+                "/api/books",
+                "/api/books/available",
+                "/api/books/search",
+                "/api/books/autocomplete",
+                "/api/loans",
+                "/api/loans/overdue");
+        return registration;
+    }
+}
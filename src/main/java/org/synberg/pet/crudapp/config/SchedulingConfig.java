@@ -0,0 +1,12 @@
+package org.synberg.pet.crudapp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Фоновые задачи по расписанию ({@code @Scheduled}).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
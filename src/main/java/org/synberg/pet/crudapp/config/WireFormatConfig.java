@@ -0,0 +1,40 @@
+package org.synberg.pet.crudapp.config;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Двоичные форматы ответов для межсервисных клиентов.
+ * <p>
+ * По заголовку {@code Accept} все контроллеры отвечают в CBOR ({@code application/cbor})
+ * или Smile ({@code application/x-jackson-smile}) вместо JSON и принимают эти форматы в теле запроса.
+ * Мапперы собираются тем же {@link Jackson2ObjectMapperBuilder}, что и JSON, поэтому настройки
+ * {@code spring.jackson.*} и модули общие. Даты пишутся числами, а не ISO-строками:
+ * так они короче и не разбираются как текст. Smile, кроме того, заменяет повторяющиеся
+ * имена полей ссылками на первое вхождение.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder
+                .factory(new CBORFactory())
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder
+                .factory(new SmileFactory())
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build());
+    }
+}
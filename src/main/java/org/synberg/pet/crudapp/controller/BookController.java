@@ -1,18 +1,30 @@
 package org.synberg.pet.crudapp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.synberg.pet.crudapp.admission.Admission;
+import org.synberg.pet.crudapp.admission.Priority;
+import org.synberg.pet.crudapp.dto.bulk.BulkResultDto;
 import org.synberg.pet.crudapp.dto.create.BookCreateDto;
 import org.synberg.pet.crudapp.dto.BookDto;
+import org.synberg.pet.crudapp.dto.LoanDto;
+import org.synberg.pet.crudapp.dto.PageDto;
 import org.synberg.pet.crudapp.dto.update.BookUpdateDto;
+import org.synberg.pet.crudapp.exception.BadRequestException;
 import org.synberg.pet.crudapp.exception.NotFoundException;
+import org.synberg.pet.crudapp.exception.PreconditionFailedException;
 import org.synberg.pet.crudapp.service.BookService;
+import org.synberg.pet.crudapp.service.LoanService;
 
-import java.util.List;
+import java.io.InputStream;
 
 /**
  * REST-контроллер для управления книгами.
@@ -31,9 +43,13 @@ import java.util.List;
 @RequiredArgsConstructor
 public class BookController {
     private final BookService bookService;
+    private final LoanService loanService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Получает книгу по ее ID.
+     * <p>
+     * Отвечает с заголовком {@code ETag}; при совпадении с {@code If-None-Match} возвращает {@code 304}.
      *
      * @param id идентификатор книги
      * @return данные книги в виде {@link BookDto}
@@ -41,19 +57,110 @@ public class BookController {
      */
     @GetMapping("/{id}")
     @Operation(summary = "Получить книгу по ID")
-    public BookDto getBookById(@PathVariable Long id) {
-        return bookService.find(id);
+    public ResponseEntity<BookDto> getBookById(@PathVariable Long id) {
+        BookDto book = bookService.find(id);
+        return ResponseEntity.ok().eTag(ETags.of(book)).body(book);
     }
 
     /**
-     * Получает список всех книг.
+     * Получает страницу книг с курсорной пагинацией.
      *
-     * @return список книг в виде {@link BookDto}
+     * @param after курсор из {@code nextCursor} предыдущей страницы; не задан для первой страницы
+     * @param limit размер страницы
+     * @return страница книг в виде {@link BookDto} с курсором следующей страницы
      */
     @GetMapping
     @Operation(summary = "Получить все сохраненные книги")
-    public List<BookDto> getAllBooks() {
-        return bookService.findAll();
+    @Admission(priority = Priority.LOW)
+    public PageDto<BookDto> getAllBooks(@RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = "50") int limit) {
+        return bookService.findPage(after, limit);
+    }
+
+    /**
+     * Получает страницу свободных книг.
+     * <p>
+     * Доступность берётся из индекса в памяти, таблица займов не читается.
+     *
+     * @param after курсор из {@code nextCursor} предыдущей страницы; не задан для первой страницы
+     * @param limit размер страницы
+     * @return страница свободных книг с курсором следующей страницы
+     */
+    @GetMapping("/available")
+    @Operation(summary = "Получить свободные книги")
+    @Admission(priority = Priority.LOW)
+    public PageDto<BookDto> getAvailableBooks(@RequestParam(required = false) String after,
+                                              @RequestParam(defaultValue = "50") int limit) {
+        return bookService.findAvailablePage(after, limit);
+    }
+
+    /**
+     * Ищет книги по словам из названия и автора с ранжированием по релевантности.
+     *
+     * @param q поисковый запрос; поддерживаются фразы в кавычках, {@code or} и исключение через {@code -}
+     * @param after курсор из {@code nextCursor} предыдущей страницы; не задан для первой страницы
+     * @param limit размер страницы
+     * @return страница найденных книг с курсором следующей страницы
+     */
+    @GetMapping("/search")
+    @Operation(summary = "Полнотекстовый поиск книг")
+    @Admission(priority = Priority.LOW)
+    public PageDto<BookDto> searchBooks(@RequestParam String q,
+                                        @RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = "50") int limit) {
+        return bookService.search(q, after, limit);
+    }
+
+    /**
+     * Подсказки для автодополнения по началу названия с допуском опечаток.
+     *
+     * @param q введённое начало названия
+     * @param after курсор из {@code nextCursor} предыдущей страницы; не задан для первой страницы
+     * @param limit размер страницы
+     * @return страница подходящих книг с курсором следующей страницы
+     */
+    @GetMapping("/autocomplete")
+    @Operation(summary = "Автодополнение по названию книги")
+    @Admission(priority = Priority.LOW)
+    public PageDto<BookDto> autocompleteBooks(@RequestParam String q,
+                                              @RequestParam(required = false) String after,
+                                              @RequestParam(defaultValue = "10") int limit) {
+        return bookService.autocomplete(q, after, limit);
+    }
+
+    /**
+     * Получает страницу займов книги от новых к старым, включая архивные.
+     *
+     * @param id идентификатор книги
+     * @param status {@code all}, {@code active} (не возвращённые) или {@code returned} (возвращённые)
+     * @param after курсор из {@code nextCursor} предыдущей страницы; не задан для первой страницы
+     * @param limit размер страницы
+     * @return страница займов в виде {@link LoanDto} с курсором следующей страницы
+     * @throws NotFoundException если книга не найдена
+     * @throws BadRequestException если статус или курсор некорректны
+     */
+    @GetMapping("/{id}/loans")
+    @Operation(summary = "Получить займы книги")
+    public PageDto<LoanDto> getBookLoans(@PathVariable Long id,
+                                         @RequestParam(defaultValue = "all") String status,
+                                         @RequestParam(required = false) String after,
+                                         @RequestParam(defaultValue = "50") int limit) {
+        return loanService.findBookLoans(id, status, after, limit);
+    }
+
+    /**
+     * Выгружает все книги потоком в формате NDJSON.
+     * <p>
+     * Записи читаются из базы данных курсором и сразу пишутся в ответ,
+     * поэтому расход памяти не зависит от количества записей.
+     *
+     * @return поток книг, по одному JSON-объекту на строку
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Выгрузить все книги в формате NDJSON")
+    @Admission(priority = Priority.LOW)
+    public ResponseEntity<StreamingResponseBody> exportBooks() {
+        return NdjsonExport.stream(objectMapper, bookService::export);
     }
 
     /**
@@ -69,19 +176,55 @@ public class BookController {
         return ResponseEntity.ok(createdBook);
     }
 
+    /**
+     * Массово создаёт книги из JSON-массива.
+     * <p>
+     * Массив читается потоково; невалидные строки и дубликаты не прерывают импорт
+     * и возвращаются в сводке.
+     *
+     * @param body JSON-массив объектов {@link BookCreateDto}
+     * @return сводка импорта
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Массово создать книги из JSON")
+    @Admission(priority = Priority.LOW)
+    public BulkResultDto createBooksBulk(InputStream body) {
+        return bookService.bulkCreate(BulkBodyReader.json(objectMapper, body, BookCreateDto.class));
+    }
+
+    /**
+     * Массово создаёт книги из CSV с колонками {@code title,author}.
+     *
+     * @param body CSV в кодировке UTF-8 со строкой заголовка
+     * @return сводка импорта
+     */
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    @Operation(summary = "Массово создать книги из CSV")
+    @Admission(priority = Priority.LOW)
+    public BulkResultDto createBooksBulkCsv(InputStream body) {
+        return bookService.bulkCreate(BulkBodyReader.csv(body)
+                .map(row -> new BookCreateDto(row.get("title"), row.get("author"))));
+    }
+
     /**
      * Обновляет данные существующей книги.
      *
      * @param id            идентификатор книги
      * @param bookUpdateDto новые данные книги
+     * @param ifMatch ETag из предыдущего ответа; если версия изменилась, обновление отклоняется
+     * @param prefer {@code return=minimal}, чтобы получить {@code 204} только с новым ETag
      * @return обновленная книга в виде {@link BookDto}
      * @throws NotFoundException если книга не найдена
+     * @throws PreconditionFailedException если версия не совпадает с {@code If-Match}
      */
     @PutMapping("/{id}")
     @Operation(summary = "Обновить книгу по ID")
-    public ResponseEntity<BookDto> updateBook(@PathVariable Long id, @Valid @RequestBody BookUpdateDto bookUpdateDto) {
-        BookDto updatedBook = bookService.update(id, bookUpdateDto);
-        return ResponseEntity.ok(updatedBook);
+    public ResponseEntity<BookDto> updateBook(@PathVariable Long id,
+                                              @Valid @RequestBody BookUpdateDto bookUpdateDto,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @RequestHeader(value = "Prefer", required = false) String prefer) {
+        BookDto updatedBook = bookService.update(id, bookUpdateDto, ETags.expectedVersion(ifMatch));
+        return ETags.updated(updatedBook, ETags.of(updatedBook), prefer);
     }
 
     /**
@@ -0,0 +1,188 @@
+package org.synberg.pet.crudapp.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.synberg.pet.crudapp.exception.BadRequestException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Потоковое чтение тел запросов массового импорта.
+ * <p>
+ * Строки разбираются по мере чтения тела запроса, поэтому большой импорт
+ * не материализуется в памяти целиком.
+ */
+final class BulkBodyReader {
+
+    private BulkBodyReader() {
+    }
+
+    /**
+     * Читает JSON-массив (или последовательность JSON-объектов) элемент за элементом.
+     * <p>
+     * Некорректный элемент обнаруживается только при чтении до него, поэтому ошибка разбора
+     * выбрасывается из потока как {@link BadRequestException}, а не при создании потока.
+     *
+     * @param objectMapper Jackson {@link ObjectMapper}
+     * @param body тело запроса
+     * @param type тип элемента
+     * @return поток элементов
+     * @throws BadRequestException если начало тела не является JSON
+     */
+    static <T> Stream<T> json(ObjectMapper objectMapper, InputStream body, Class<T> type) {
+        MappingIterator<T> values;
+        try {
+            values = objectMapper.readerFor(type).readValues(body);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Malformed JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new BadRequestException("Malformed JSON: " + e.getMessage());
+        }
+        Iterator<T> iterator = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return values.hasNext();
+                } catch (RuntimeException e) {
+                    throw malformed(e);
+                }
+            }
+
+            @Override
+            public T next() {
+                try {
+                    return values.next();
+                } catch (RuntimeException e) {
+                    throw malformed(e);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    private static RuntimeException malformed(RuntimeException e) {
+        if (e.getCause() instanceof JsonProcessingException cause) {
+            return new BadRequestException("Malformed JSON: " + cause.getOriginalMessage());
+        }
+        if (e instanceof RuntimeJsonMappingException) {
+            return new BadRequestException("Malformed JSON: " + e.getMessage());
+        }
+        return e;
+    }
+
+    /**
+     * Читает CSV (RFC 4180) в кодировке UTF-8 с обязательной строкой заголовка.
+     *
+     * @param body тело запроса
+     * @return поток строк, где ключ — имя колонки из заголовка в нижнем регистре
+     */
+    static Stream<Map<String, String>> csv(InputStream body) {
+        CsvIterator iterator = new CsvIterator(
+                new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    private static final class CsvIterator implements Iterator<Map<String, String>> {
+        private final Reader reader;
+        private final List<String> header;
+        private List<String> next;
+
+        CsvIterator(Reader reader) {
+            this.reader = reader;
+            List<String> columns = readRecord();
+            if (columns == null) {
+                throw new BadRequestException("CSV header is required");
+            }
+            this.header = columns.stream().map(column -> column.trim().toLowerCase(Locale.ROOT)).toList();
+            this.next = readRecord();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map<String, String> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < header.size() && i < next.size(); i++) {
+                row.put(header.get(i), next.get(i));
+            }
+            next = readRecord();
+            return row;
+        }
+
+        /**
+         * Читает одну запись; пустые строки пропускаются.
+         *
+         * @return значения полей или {@code null} в конце потока
+         */
+        private List<String> readRecord() {
+            try {
+                List<String> fields = new ArrayList<>();
+                StringBuilder field = new StringBuilder();
+                boolean quoted = false;
+                boolean any = false;
+                int c;
+                while ((c = reader.read()) != -1) {
+                    any = true;
+                    if (quoted) {
+                        if (c == '"') {
+                            reader.mark(1);
+                            if (reader.read() == '"') {
+                                field.append('"');
+                            } else {
+                                reader.reset();
+                                quoted = false;
+                            }
+                        } else {
+                            field.append((char) c);
+                        }
+                    } else if (c == '"') {
+                        quoted = true;
+                    } else if (c == ',') {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    } else if (c == '\n') {
+                        if (fields.isEmpty() && field.isEmpty()) {
+                            any = false;
+                            continue;
+                        }
+                        break;
+                    } else if (c != '\r') {
+                        field.append((char) c);
+                    }
+                }
+                if (!any) {
+                    return null;
+                }
+                fields.add(field.toString());
+                return fields;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
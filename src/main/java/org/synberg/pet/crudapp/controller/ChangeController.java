@@ -0,0 +1,51 @@
+package org.synberg.pet.crudapp.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.synberg.pet.crudapp.dto.change.ChangeFeedDto;
+import org.synberg.pet.crudapp.exception.GoneException;
+import org.synberg.pet.crudapp.service.ChangeFeedService;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * REST-контроллер журнала изменений пользователей, книг и займов.
+ * <p>
+ * Позволяет внешним системам забирать только изменения вместо полной выгрузки.
+ */
+@RestController
+@RequestMapping("/api/changes")
+@Tag(name = "Changes", description = "Журнал изменений")
+@RequiredArgsConstructor
+public class ChangeController {
+    private final ChangeFeedService changeFeedService;
+
+    /**
+     * Получает изменения после {@code since}.
+     * <p>
+     * Без {@code since} возвращает пустую порцию с текущим концом журнала. С {@code wait}
+     * ответ откладывается, пока не появятся новые записи или не истечёт ожидание.
+     *
+     * @param since {@code next} из предыдущего ответа
+     * @param limit максимальное количество записей
+     * @param wait сколько секунд ждать новых записей
+     * @return порция журнала и значение {@code since} для следующего запроса
+     * @throws GoneException если записи после {@code since} удалены по сроку хранения
+     */
+    @GetMapping
+    @Operation(summary = "Получить изменения после указанной позиции")
+    public CompletableFuture<ChangeFeedDto> getChanges(@RequestParam(required = false) Long since,
+                                                       @RequestParam(defaultValue = "100") int limit,
+                                                       @RequestParam(defaultValue = "0") long wait) {
+        if (since == null) {
+            return CompletableFuture.completedFuture(changeFeedService.head());
+        }
+        return changeFeedService.poll(since, limit, Duration.ofSeconds(wait));
+    }
+}
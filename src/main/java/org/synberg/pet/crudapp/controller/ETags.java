@@ -0,0 +1,85 @@
+package org.synberg.pet.crudapp.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.synberg.pet.crudapp.dto.BookDto;
+import org.synberg.pet.crudapp.dto.LoanDto;
+import org.synberg.pet.crudapp.dto.UserDto;
+import org.synberg.pet.crudapp.exception.PreconditionFailedException;
+
+/**
+ * ETag отдельных ресурсов на основе версий сущностей.
+ * <p>
+ * Первая часть ETag — версия самого ресурса, которую {@code If-Match} сверяет при обновлении;
+ * остальные части отражают вложенные данные ответа (версии пользователя и книги займа,
+ * доступность книги), чтобы {@code If-None-Match} не возвращал {@code 304} для изменившегося ответа.
+ * Условные {@code GET} обрабатывает Spring MVC по заголовку {@code ETag} в {@link ResponseEntity}.
+ */
+final class ETags {
+    private static final String RETURN_MINIMAL = "return=minimal";
+
+    private ETags() {
+    }
+
+    static String of(UserDto user) {
+        return quote(user.version());
+    }
+
+    static String of(BookDto book) {
+        return quote(book.version() + "." + (book.available() ? 1 : 0));
+    }
+
+    static String of(LoanDto loan) {
+        return quote(loan.version() + "." + loan.user().version() + "." + loan.book().version()
+                + "." + (loan.book().available() ? 1 : 0));
+    }
+
+    /**
+     * Извлекает версию ресурса из заголовка {@code If-Match}.
+     *
+     * @param ifMatch значение заголовка или {@code null}
+     * @return ожидаемая версия или {@code null}, если заголовок не задан или равен {@code *}
+     * @throws PreconditionFailedException если ETag не выдан этим API
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException("Invalid If-Match header");
+        }
+        String value = tag.substring(1, tag.length() - 1);
+        int dot = value.indexOf('.');
+        try {
+            return Long.parseLong(dot < 0 ? value : value.substring(0, dot));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("Invalid If-Match header");
+        }
+    }
+
+    /**
+     * Ответ на обновление: тело целиком или, при {@code Prefer: return=minimal}, только новый ETag.
+     *
+     * @param body обновлённый ресурс
+     * @param eTag ETag обновлённого ресурса
+     * @param prefer значение заголовка {@code Prefer} или {@code null}
+     * @return {@code 200} с телом или {@code 204} без тела
+     */
+    static <T> ResponseEntity<T> updated(T body, String eTag, String prefer) {
+        if (prefer != null && prefer.contains(RETURN_MINIMAL)) {
+            return ResponseEntity.status(HttpStatus.NO_CONTENT)
+                    .eTag(eTag)
+                    .header("Preference-Applied", RETURN_MINIMAL)
+                    .build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(body);
+    }
+
+    private static String quote(Object value) {
+        return "\"" + value + "\"";
+    }
+}
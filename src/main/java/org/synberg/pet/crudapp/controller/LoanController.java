@@ -1,18 +1,31 @@
 package org.synberg.pet.crudapp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.synberg.pet.crudapp.admission.Admission;
+import org.synberg.pet.crudapp.admission.Priority;
+import org.synberg.pet.crudapp.dto.batch.LoanBatchResultDto;
+import org.synberg.pet.crudapp.dto.create.LoanBatchCreateDto;
 import org.synberg.pet.crudapp.dto.create.LoanCreateDto;
 import org.synberg.pet.crudapp.dto.LoanDto;
+import org.synberg.pet.crudapp.dto.LoanRefDto;
+import org.synberg.pet.crudapp.dto.PageDto;
+import org.synberg.pet.crudapp.dto.update.LoanBatchReturnDto;
 import org.synberg.pet.crudapp.dto.update.LoanUpdateDto;
+import org.synberg.pet.crudapp.exception.AlreadyExistsException;
+import org.synberg.pet.crudapp.exception.BadRequestException;
 import org.synberg.pet.crudapp.exception.NotFoundException;
+import org.synberg.pet.crudapp.exception.PreconditionFailedException;
 import org.synberg.pet.crudapp.service.LoanService;
-
-import java.util.List;
+import org.synberg.pet.crudapp.service.LoanView;
 
 /**
  * REST-контроллер для управления выдачами книг (Loan).
@@ -32,29 +45,95 @@ import java.util.List;
 @RequiredArgsConstructor
 public class LoanController {
     private final LoanService loanService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Получает выдачу по её ID.
+     * <p>
+     * Полное представление отвечает с заголовком {@code ETag}; при совпадении с {@code If-None-Match}
+     * возвращает {@code 304}.
      *
      * @param id идентификатор выдачи
-     * @return данные о выдаче в виде {@link LoanDto}
+     * @param fields поля ответа через запятую, например {@code id,loanDate,book.title}; не задан — все поля
+     * @param embed {@code none}, чтобы вместо пользователя и книги вернуть {@code userId} и {@code bookId}
+     * @return данные о выдаче в виде {@link LoanDto}, {@link LoanRefDto} или объекта с запрошенными полями
      * @throws NotFoundException если одалживание не найдено
+     * @throws BadRequestException если поле или режим вложения неизвестны
      */
     @GetMapping("/{id}")
     @Operation(summary = "Получить одалживание по ID")
-    public LoanDto getLoanById(@PathVariable Long id) {
-        return loanService.find(id);
+    public ResponseEntity<Object> getLoanById(@PathVariable Long id,
+                                              @RequestParam(required = false) String fields,
+                                              @RequestParam(defaultValue = "all") String embed) {
+        LoanView view = LoanView.of(fields, embed);
+        Object loan = loanService.find(id, view);
+        if (loan instanceof LoanDto full) {
+            return ResponseEntity.ok().eTag(ETags.of(full)).body(loan);
+        }
+        return ResponseEntity.ok(loan);
     }
 
     /**
-     * Получает список всех выдач.
+     * Получает страницу выдач с курсорной пагинацией.
      *
-     * @return список выдач в виде {@link LoanDto}
+     * @param after курсор из {@code nextCursor} предыдущей страницы; не задан для первой страницы
+     * @param limit размер страницы
+     * @param fields поля ответа через запятую; не задан — все поля
+     * @param embed {@code none}, чтобы вместо пользователя и книги вернуть {@code userId} и {@code bookId}
+     * @return страница выдач с курсором следующей страницы
+     * @throws BadRequestException если поле или режим вложения неизвестны
      */
     @GetMapping
     @Operation(summary = "Получить все сохраненные одалживания")
-    public List<LoanDto> getAllLoans() {
-        return loanService.findAll();
+    @Admission(priority = Priority.LOW)
+    public PageDto<Object> getAllLoans(@RequestParam(required = false) String after,
+                                       @RequestParam(defaultValue = "50") int limit,
+                                       @RequestParam(required = false) String fields,
+                                       @RequestParam(defaultValue = "all") String embed) {
+        return loanService.findPage(after, limit, LoanView.of(fields, embed));
+    }
+
+    /**
+     * Получает страницу просроченных выдач с курсорной пагинацией.
+     * <p>
+     * Множество просроченных выдач обновляется фоновой задачей, поэтому только что
+     * просроченная выдача появляется в ответе после её очередного запуска.
+     *
+     * @param after курсор из {@code nextCursor} предыдущей страницы; не задан для первой страницы
+     * @param limit размер страницы
+     * @param fields поля ответа через запятую; не задан — все поля
+     * @param embed {@code none}, чтобы вместо пользователя и книги вернуть {@code userId} и {@code bookId}
+     * @return страница просроченных выдач с курсором следующей страницы
+     * @throws BadRequestException если поле или режим вложения неизвестны
+     */
+    @GetMapping("/overdue")
+    @Operation(summary = "Получить просроченные одалживания")
+    @Admission(priority = Priority.LOW)
+    public PageDto<Object> getOverdueLoans(@RequestParam(required = false) String after,
+                                           @RequestParam(defaultValue = "50") int limit,
+                                           @RequestParam(required = false) String fields,
+                                           @RequestParam(defaultValue = "all") String embed) {
+        return loanService.findOverduePage(after, limit, LoanView.of(fields, embed));
+    }
+
+    /**
+     * Выгружает все выдачи потоком в формате NDJSON.
+     * <p>
+     * Записи читаются из базы данных курсором и сразу пишутся в ответ,
+     * поэтому расход памяти не зависит от количества записей.
+     *
+     * @param fields поля ответа через запятую; не задан — все поля
+     * @param embed {@code none}, чтобы вместо пользователя и книги вернуть {@code userId} и {@code bookId}
+     * @return поток выдач, по одному JSON-объекту на строку
+     * @throws BadRequestException если поле или режим вложения неизвестны
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Выгрузить все одалживания в формате NDJSON")
+    @Admission(priority = Priority.LOW)
+    public ResponseEntity<StreamingResponseBody> exportLoans(@RequestParam(required = false) String fields,
+                                                             @RequestParam(defaultValue = "all") String embed) {
+        LoanView view = LoanView.of(fields, embed);
+        return NdjsonExport.stream(objectMapper, consumer -> loanService.export(consumer, view));
     }
 
     /**
@@ -63,7 +142,7 @@ public class LoanController {
      * @param loanCreateDto данные для создания выдачи
      * @return созданная выдача в виде {@link LoanDto}
      * @throws NotFoundException если пользователь/книга не найдены
-     * @throws RuntimeException если книга уже выдана
+     * @throws AlreadyExistsException если книга уже выдана
      */
     @PostMapping
     @Operation(summary = "Создать новое одалживание")
@@ -72,19 +151,41 @@ public class LoanController {
         return ResponseEntity.ok(createdLoan);
     }
 
+    /**
+     * Выдаёт пользователю несколько книг одним запросом.
+     * <p>
+     * Книги, которые не найдены или уже выданы, не прерывают выдачу остальных
+     * и возвращаются в результате со своим статусом.
+     *
+     * @param dto email пользователя и ID книг
+     * @return результат по каждой книге
+     * @throws NotFoundException если пользователь не найден
+     */
+    @PostMapping("/batch")
+    @Operation(summary = "Выдать несколько книг одному пользователю")
+    public LoanBatchResultDto createLoans(@Valid @RequestBody LoanBatchCreateDto dto) {
+        return loanService.createBatch(dto);
+    }
+
     /**
      * Обновляет существующую выдачу.
      *
      * @param id идентификатор выдачи
      * @param loanUpdateDto новые данные выдачи
+     * @param ifMatch ETag из предыдущего ответа; если версия изменилась, обновление отклоняется
+     * @param prefer {@code return=minimal}, чтобы получить {@code 204} только с новым ETag
      * @return обновленная выдача в виде {@link LoanDto}
      * @throws NotFoundException если одалживание/пользователь/книга не найдены
+     * @throws PreconditionFailedException если версия не совпадает с {@code If-Match}
      */
     @PutMapping("/{id}")
     @Operation(summary = "Обновить одалживание по ID")
-    public ResponseEntity<LoanDto> updateLoan(@PathVariable Long id, @Valid @RequestBody LoanUpdateDto loanUpdateDto) {
-        LoanDto updatedLoan = loanService.update(id, loanUpdateDto);
-        return ResponseEntity.ok(updatedLoan);
+    public ResponseEntity<LoanDto> updateLoan(@PathVariable Long id,
+                                              @Valid @RequestBody LoanUpdateDto loanUpdateDto,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @RequestHeader(value = "Prefer", required = false) String prefer) {
+        LoanDto updatedLoan = loanService.update(id, loanUpdateDto, ETags.expectedVersion(ifMatch));
+        return ETags.updated(updatedLoan, ETags.of(updatedLoan), prefer);
     }
 
     /**
@@ -101,6 +202,18 @@ public class LoanController {
         return loanService.returnLoan(id);
     }
 
+    /**
+     * Фиксирует возврат книг по нескольким выдачам одним запросом.
+     *
+     * @param dto ID выдач
+     * @return результат по каждой выдаче
+     */
+    @PatchMapping("/return")
+    @Operation(summary = "Вернуть несколько книг по ID одалживаний")
+    public LoanBatchResultDto returnLoans(@Valid @RequestBody LoanBatchReturnDto dto) {
+        return loanService.returnBatch(dto);
+    }
+
     /**
      * Удаляет выдачу по её ID.
      *
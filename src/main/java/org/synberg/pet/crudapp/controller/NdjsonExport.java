@@ -0,0 +1,52 @@
+package org.synberg.pet.crudapp.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Потоковая выгрузка записей в формате NDJSON (один JSON-объект на строку).
+ * <p>
+ * Каждая запись сериализуется сразу в выходной поток ответа, поэтому ни список
+ * записей, ни тело ответа целиком в памяти не собираются.
+ */
+final class NdjsonExport {
+
+    private NdjsonExport() {
+    }
+
+    /**
+     * Создаёт потоковый ответ из функции выгрузки сервиса.
+     *
+     * @param objectMapper настроенный Jackson {@link ObjectMapper}
+     * @param exporter функция выгрузки, передающая записи в полученный {@link Consumer}
+     * @return ответ с типом {@code application/x-ndjson}
+     */
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper,
+                                                            Consumer<Consumer<T>> exporter) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                exporter.accept(item -> {
+                    try {
+                        writer.writeValue(generator, item);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
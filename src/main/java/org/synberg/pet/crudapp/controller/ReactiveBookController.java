@@ -0,0 +1,50 @@
+package org.synberg.pet.crudapp.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.synberg.pet.crudapp.dto.BookDto;
+import org.synberg.pet.crudapp.exception.NotFoundException;
+import org.synberg.pet.crudapp.service.ReactiveBookService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Реактивный REST-контроллер для чтения книг.
+ * <p>
+ * Запросы к базе выполняются через R2DBC и не занимают поток сервера на время ожидания;
+ * списки отдаются потоком NDJSON с учётом обратного давления.
+ */
+@RestController
+@RequestMapping("/reactive/books")
+@Tag(name = "Reactive", description = "Неблокирующее чтение")
+@RequiredArgsConstructor
+public class ReactiveBookController {
+    private final ReactiveBookService reactiveBookService;
+
+    /**
+     * Получает книгу по её ID.
+     *
+     * @param id идентификатор книги
+     * @return данные книги в виде {@link BookDto}
+     * @throws NotFoundException если книга не найдена
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "Получить книгу по ID (реактивно)")
+    public Mono<BookDto> getBookById(@PathVariable Long id) {
+        return reactiveBookService.find(id);
+    }
+
+    /**
+     * Получает все книги потоком NDJSON.
+     *
+     * @return поток книг, по одному JSON-объекту на строку
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Получить все книги потоком NDJSON (реактивно)")
+    public Flux<BookDto> getAllBooks() {
+        return reactiveBookService.findAll();
+    }
+}
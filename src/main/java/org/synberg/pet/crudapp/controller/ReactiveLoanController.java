@@ -0,0 +1,50 @@
+package org.synberg.pet.crudapp.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.synberg.pet.crudapp.dto.LoanDto;
+import org.synberg.pet.crudapp.exception.NotFoundException;
+import org.synberg.pet.crudapp.service.ReactiveLoanService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Реактивный REST-контроллер для чтения выдач.
+ * <p>
+ * Запросы к базе выполняются через R2DBC и не занимают поток сервера на время ожидания;
+ * списки отдаются потоком NDJSON с учётом обратного давления.
+ */
+@RestController
+@RequestMapping("/reactive/loans")
+@Tag(name = "Reactive", description = "Неблокирующее чтение")
+@RequiredArgsConstructor
+public class ReactiveLoanController {
+    private final ReactiveLoanService reactiveLoanService;
+
+    /**
+     * Получает выдачу по её ID.
+     *
+     * @param id идентификатор выдачи
+     * @return данные о выдаче в виде {@link LoanDto}
+     * @throws NotFoundException если одалживание не найдено
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "Получить одалживание по ID (реактивно)")
+    public Mono<LoanDto> getLoanById(@PathVariable Long id) {
+        return reactiveLoanService.find(id);
+    }
+
+    /**
+     * Получает все выдачи потоком NDJSON.
+     *
+     * @return поток выдач, по одному JSON-объекту на строку
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Получить все одалживания потоком NDJSON (реактивно)")
+    public Flux<LoanDto> getAllLoans() {
+        return reactiveLoanService.findAll();
+    }
+}
@@ -0,0 +1,72 @@
+package org.synberg.pet.crudapp.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+import org.synberg.pet.crudapp.dto.stats.BookLoanStatsDto;
+import org.synberg.pet.crudapp.dto.stats.DailyLoanStatsDto;
+import org.synberg.pet.crudapp.dto.stats.UserLoanStatsDto;
+import org.synberg.pet.crudapp.exception.BadRequestException;
+import org.synberg.pet.crudapp.exception.NotFoundException;
+import org.synberg.pet.crudapp.service.StatsService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST-контроллер отчётов по займам.
+ * <p>
+ * Отчёты строятся по предагрегированной статистике, а не по списку займов.
+ */
+@RestController
+@RequestMapping("/api/stats")
+@Tag(name = "Stats", description = "Статистика займов")
+@RequiredArgsConstructor
+public class StatsController {
+    private final StatsService statsService;
+
+    /**
+     * Получает самые выдаваемые книги.
+     *
+     * @param limit число книг
+     * @return книги по убыванию числа выдач
+     * @throws BadRequestException если {@code limit} вне допустимого диапазона
+     */
+    @GetMapping("/books/top")
+    @Operation(summary = "Получить самые выдаваемые книги")
+    public List<BookLoanStatsDto> getTopBooks(@RequestParam(defaultValue = "10") int limit) {
+        return statsService.findTopBooks(limit);
+    }
+
+    /**
+     * Получает статистику займов пользователя.
+     *
+     * @param id идентификатор пользователя
+     * @return число активных и всех займов, средняя длительность займа в секундах
+     * @throws NotFoundException если пользователь не найден
+     */
+    @GetMapping("/users/{id}")
+    @Operation(summary = "Получить статистику займов пользователя")
+    public UserLoanStatsDto getUserStats(@PathVariable Long id) {
+        return statsService.findUser(id);
+    }
+
+    /**
+     * Получает число выдач и возвратов по дням.
+     *
+     * @param from первый день; по умолчанию 29 дней до {@code to}
+     * @param to последний день включительно; по умолчанию сегодня
+     * @return по строке на каждый день периода
+     * @throws BadRequestException если период пуст или слишком длинный
+     */
+    @GetMapping("/daily")
+    @Operation(summary = "Получить число выдач и возвратов по дням")
+    public List<DailyLoanStatsDto> getDailyStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        return statsService.findDaily(from != null ? from : end.minusDays(29), end);
+    }
+}
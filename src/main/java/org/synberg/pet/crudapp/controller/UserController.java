@@ -1,19 +1,31 @@
 package org.synberg.pet.crudapp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.synberg.pet.crudapp.admission.Admission;
+import org.synberg.pet.crudapp.admission.Priority;
+import org.synberg.pet.crudapp.dto.bulk.BulkResultDto;
 import org.synberg.pet.crudapp.dto.create.UserCreateDto;
 import org.synberg.pet.crudapp.dto.UserDto;
+import org.synberg.pet.crudapp.dto.LoanDto;
+import org.synberg.pet.crudapp.dto.PageDto;
 import org.synberg.pet.crudapp.dto.update.UserUpdateDto;
 import org.synberg.pet.crudapp.service.UserService;
+import org.synberg.pet.crudapp.service.LoanService;
+import org.synberg.pet.crudapp.exception.BadRequestException;
 import org.synberg.pet.crudapp.exception.NotFoundException;
+import org.synberg.pet.crudapp.exception.PreconditionFailedException;
 
-import java.util.List;
+import java.io.InputStream;
 
 /**
  * REST-контроллер для управления пользователями.
@@ -33,9 +45,13 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final LoanService loanService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Получает пользователя по его ID.
+     * <p>
+     * Отвечает с заголовком {@code ETag}; при совпадении с {@code If-None-Match} возвращает {@code 304}.
      *
      * @param id идентификатор пользователя
      * @return данные пользователя в виде {@link UserDto}
@@ -43,19 +59,59 @@ public class UserController {
      */
     @GetMapping("/{id}")
     @Operation(summary = "Получить пользователя по ID")
-    public UserDto getUserById(@PathVariable Long id) {
-        return userService.find(id);
+    public ResponseEntity<UserDto> getUserById(@PathVariable Long id) {
+        UserDto user = userService.find(id);
+        return ResponseEntity.ok().eTag(ETags.of(user)).body(user);
     }
 
     /**
-     * Получает список всех пользователей.
+     * Получает страницу пользователей с курсорной пагинацией.
      *
-     * @return список всех пользователей в виде {@link UserDto}
+     * @param after курсор из {@code nextCursor} предыдущей страницы; не задан для первой страницы
+     * @param limit размер страницы
+     * @return страница пользователей в виде {@link UserDto} с курсором следующей страницы
      */
     @GetMapping
     @Operation(summary = "Получить всех сохраненных пользователей")
-    public List<UserDto> getAllUsers() {
-        return userService.findAll();
+    @Admission(priority = Priority.LOW)
+    public PageDto<UserDto> getAllUsers(@RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = "50") int limit) {
+        return userService.findPage(after, limit);
+    }
+
+    /**
+     * Получает страницу займов пользователя от новых к старым, включая архивные.
+     *
+     * @param id идентификатор пользователя
+     * @param status {@code all}, {@code active} (не возвращённые) или {@code returned} (возвращённые)
+     * @param after курсор из {@code nextCursor} предыдущей страницы; не задан для первой страницы
+     * @param limit размер страницы
+     * @return страница займов в виде {@link LoanDto} с курсором следующей страницы
+     * @throws NotFoundException если пользователь не найден
+     * @throws BadRequestException если статус или курсор некорректны
+     */
+    @GetMapping("/{id}/loans")
+    @Operation(summary = "Получить займы пользователя")
+    public PageDto<LoanDto> getUserLoans(@PathVariable Long id,
+                                         @RequestParam(defaultValue = "all") String status,
+                                         @RequestParam(required = false) String after,
+                                         @RequestParam(defaultValue = "50") int limit) {
+        return loanService.findUserLoans(id, status, after, limit);
+    }
+
+    /**
+     * Выгружает всех пользователей потоком в формате NDJSON.
+     * <p>
+     * Записи читаются из базы данных курсором и сразу пишутся в ответ,
+     * поэтому расход памяти не зависит от количества записей.
+     *
+     * @return поток пользователей, по одному JSON-объекту на строку
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Выгрузить всех пользователей в формате NDJSON")
+    @Admission(priority = Priority.LOW)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return NdjsonExport.stream(objectMapper, userService::export);
     }
 
     /**
@@ -71,19 +127,55 @@ public class UserController {
         return ResponseEntity.ok(createdUser);
     }
 
+    /**
+     * Массово создаёт пользователей из JSON-массива.
+     * <p>
+     * Массив читается потоково; невалидные строки и дубликаты не прерывают импорт
+     * и возвращаются в сводке.
+     *
+     * @param body JSON-массив объектов {@link UserCreateDto}
+     * @return сводка импорта
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Массово создать пользователей из JSON")
+    @Admission(priority = Priority.LOW)
+    public BulkResultDto createUsersBulk(InputStream body) {
+        return userService.bulkCreate(BulkBodyReader.json(objectMapper, body, UserCreateDto.class));
+    }
+
+    /**
+     * Массово создаёт пользователей из CSV с колонками {@code name,email}.
+     *
+     * @param body CSV в кодировке UTF-8 со строкой заголовка
+     * @return сводка импорта
+     */
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    @Operation(summary = "Массово создать пользователей из CSV")
+    @Admission(priority = Priority.LOW)
+    public BulkResultDto createUsersBulkCsv(InputStream body) {
+        return userService.bulkCreate(BulkBodyReader.csv(body)
+                .map(row -> new UserCreateDto(row.get("name"), row.get("email"))));
+    }
+
     /**
      * Обновляет данные существующего пользователя.
      *
      * @param id            идентификатор пользователя
      * @param userUpdateDto новые данные пользователя
+     * @param ifMatch ETag из предыдущего ответа; если версия изменилась, обновление отклоняется
+     * @param prefer {@code return=minimal}, чтобы получить {@code 204} только с новым ETag
      * @return обновленный пользователь в виде {@link UserDto}
      * @throws NotFoundException если пользователь не найден
+     * @throws PreconditionFailedException если версия не совпадает с {@code If-Match}
      */
     @PutMapping("/{id}")
     @Operation(summary = "Обновить пользователя по ID")
-    public ResponseEntity<UserDto> updateUser(@PathVariable Long id, @Valid @RequestBody UserUpdateDto userUpdateDto) {
-        UserDto updatedUser = userService.update(id, userUpdateDto);
-        return ResponseEntity.ok(updatedUser);
+    public ResponseEntity<UserDto> updateUser(@PathVariable Long id,
+                                              @Valid @RequestBody UserUpdateDto userUpdateDto,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @RequestHeader(value = "Prefer", required = false) String prefer) {
+        UserDto updatedUser = userService.update(id, userUpdateDto, ETags.expectedVersion(ifMatch));
+        return ETags.updated(updatedUser, ETags.of(updatedUser), prefer);
     }
 
     /**
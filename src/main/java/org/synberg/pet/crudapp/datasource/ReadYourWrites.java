@@ -0,0 +1,26 @@
+package org.synberg.pet.crudapp.datasource;
+
+/**
+ * Признак того, что текущий запрос должен читать с основной базы данных.
+ * <p>
+ * Устанавливается {@link ReadYourWritesFilter} для изменяющих запросов и для клиентов,
+ * недавно изменявших данные, чтобы они не читали с отставшей реплики собственные записи.
+ */
+final class ReadYourWrites {
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    static void stickToPrimary() {
+        PRIMARY.set(Boolean.TRUE);
+    }
+
+    static boolean isStuckToPrimary() {
+        return PRIMARY.get() != null;
+    }
+
+    static void clear() {
+        PRIMARY.remove();
+    }
+}
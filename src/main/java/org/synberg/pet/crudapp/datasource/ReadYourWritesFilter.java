@@ -0,0 +1,66 @@
+package org.synberg.pet.crudapp.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Закрепляет чтение за основной базой данных после изменений (read-your-writes).
+ * <p>
+ * Изменяющий запрос выставляет cookie {@value #COOKIE} с моментом, до которого клиент
+ * читает с основной базы; запросы с действующей cookie не маршрутизируются на реплики.
+ */
+@RequiredArgsConstructor
+class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String COOKIE = "primary-until";
+    private static final Set<String> MUTATING_METHODS = Set.of(
+            HttpMethod.POST.name(), HttpMethod.PUT.name(), HttpMethod.PATCH.name(), HttpMethod.DELETE.name());
+
+    private final Duration stickiness;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (MUTATING_METHODS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(now + stickiness.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) stickiness.toSeconds());
+            response.addCookie(cookie);
+            ReadYourWrites.stickToPrimary();
+        } else if (primaryUntil(request) > now) {
+            ReadYourWrites.stickToPrimary();
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.clear();
+        }
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0L;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0L;
+                }
+            }
+        }
+        return 0L;
+    }
+}
@@ -0,0 +1,36 @@
+package org.synberg.pet.crudapp.datasource;
+
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Настройки реплик для чтения ({@code app.datasource.*}).
+ *
+ * @param replicas реплики; пустой список отключает маршрутизацию
+ * @param maxLag максимально допустимое отставание реплики, при большем чтение уходит на основную базу
+ * @param lagCheckInterval период проверки отставания
+ * @param stickiness сколько после изменения данных клиент читает с основной базы
+ */
+public record ReplicaProperties(
+        @DefaultValue List<Replica> replicas,
+        @DefaultValue("5s") Duration maxLag,
+        @DefaultValue("1s") Duration lagCheckInterval,
+        @DefaultValue("10s") Duration stickiness
+) {
+
+    /**
+     * Подключение к реплике; пустые имя пользователя и пароль берутся из {@code spring.datasource.*}.
+     *
+     * @param url JDBC URL реплики
+     * @param username имя пользователя
+     * @param password пароль
+     */
+    public record Replica(String url, String username, String password) {
+    }
+
+    List<Replica> configuredReplicas() {
+        return replicas.stream().filter(replica -> replica.url() != null && !replica.url().isBlank()).toList();
+    }
+}
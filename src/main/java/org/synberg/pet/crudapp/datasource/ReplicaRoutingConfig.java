@@ -0,0 +1,145 @@
+package org.synberg.pet.crudapp.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Разделение чтения и записи между основной базой данных и репликами.
+ * <p>
+ * Если заданы {@code app.datasource.replicas[i].url}, пул основной базы заменяется
+ * маршрутизирующим {@code DataSource}: транзакции {@code @Transactional(readOnly = true)} читают
+ * с реплик, остальные работают с основной базой. Пулы реплик копируют настройки
+ * {@code spring.datasource.hikari.*}; отставание реплик публикуется в метрике {@code db.replica.lag}.
+ * Без реплик конфигурация ничего не меняет.
+ */
+@Configuration
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public static ReplicaRoutingPostProcessor replicaRoutingPostProcessor(Environment environment,
+                                                                          ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ReplicaRoutingPostProcessor(properties(environment), meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(Environment environment) {
+        ReplicaProperties properties = properties(environment);
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(properties.stickiness()));
+        registration.addUrlPatterns("/api/*");
+        registration.setEnabled(!properties.configuredReplicas().isEmpty());
+        return registration;
+    }
+
+    private static ReplicaProperties properties(Environment environment) {
+        return Binder.get(environment)
+                .bindOrCreate("app.datasource", ReplicaProperties.class);
+    }
+
+    /**
+     * Оборачивает пул основной базы после остальных пост-процессоров {@code DataSource}
+     * (подсчёт SQL-операторов, ограничение доступа), которые применяются к физическим пулам.
+     * Пулы реплик проходят через те же пост-процессоры при создании, поэтому обёртки
+     * стоят перед каждым пулом, а не над маршрутизацией, и не применяются дважды.
+     */
+    static class ReplicaRoutingPostProcessor implements BeanPostProcessor, Ordered, BeanFactoryAware, DisposableBean {
+        private final ReplicaProperties properties;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final List<ReplicaRoutingDataSource> routers = new ArrayList<>();
+        private final Set<String> replicaPoolNames = ConcurrentHashMap.newKeySet();
+        private AutowireCapableBeanFactory beanFactory;
+
+        ReplicaRoutingPostProcessor(ReplicaProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+            this.properties = properties;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public void setBeanFactory(BeanFactory beanFactory) {
+            this.beanFactory = (AutowireCapableBeanFactory) beanFactory;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            List<ReplicaProperties.Replica> replicas = properties.configuredReplicas();
+            if (!(bean instanceof DataSource dataSource) || replicas.isEmpty() || replicaPoolNames.contains(beanName)) {
+                return bean;
+            }
+            HikariDataSource primary;
+            try {
+                if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                    return bean;
+                }
+                primary = dataSource.unwrap(HikariDataSource.class);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Cannot inspect DataSource " + beanName, e);
+            }
+            List<ReplicaRoutingDataSource.ReplicaNode> nodes = new ArrayList<>();
+            for (int i = 0; i < replicas.size(); i++) {
+                HikariDataSource pool = replicaPool(primary, replicas.get(i), i);
+                replicaPoolNames.add(pool.getPoolName());
+                DataSource decorated = (DataSource) beanFactory.initializeBean(pool, pool.getPoolName());
+                nodes.add(new ReplicaRoutingDataSource.ReplicaNode("replica-" + i, pool, decorated));
+            }
+            ReplicaRoutingDataSource router = new ReplicaRoutingDataSource(
+                    dataSource, nodes, properties.maxLag(), properties.lagCheckInterval());
+            routers.add(router);
+            meterRegistry.ifAvailable(registry -> nodes.forEach(node ->
+                    Gauge.builder("db.replica.lag", node, ReplicaRoutingDataSource.ReplicaNode::lagSeconds)
+                            .description("Replication lag of a read replica")
+                            .baseUnit("seconds")
+                            .tag("replica", node.name())
+                            .register(registry)));
+            return new LazyConnectionDataSourceProxy(router);
+        }
+
+        private HikariDataSource replicaPool(HikariDataSource primary, ReplicaProperties.Replica replica, int index) {
+            HikariConfig config = new HikariConfig();
+            primary.copyStateTo(config);
+            config.setJdbcUrl(replica.url());
+            if (replica.username() != null && !replica.username().isBlank()) {
+                config.setUsername(replica.username());
+                config.setPassword(replica.password());
+            }
+            config.setPoolName((primary.getPoolName() == null ? "HikariPool" : primary.getPoolName())
+                    + "-replica-" + index);
+            config.setReadOnly(true);
+            meterRegistry.ifAvailable(registry ->
+                    config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            return new HikariDataSource(config);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+
+        @Override
+        public void destroy() {
+            routers.forEach(ReplicaRoutingDataSource::close);
+        }
+    }
+}
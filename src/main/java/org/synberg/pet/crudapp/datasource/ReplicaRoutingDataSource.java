@@ -0,0 +1,143 @@
+package org.synberg.pet.crudapp.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Маршрутизация соединений между основной базой данных и репликами.
+ * <p>
+ * Транзакции только для чтения уходят на реплики по кругу; изменяющие транзакции,
+ * запросы вне транзакций и запросы, закреплённые {@link ReadYourWrites}, — на основную базу.
+ * Поиски, заполняющие общий кэш книг и пользователей, выполняются в изменяющих транзакциях:
+ * закрепление за основной базой действует для одного клиента, а кэш общий.
+ * Реплика, отставание которой превышает {@code maxLag} или которая не отвечает,
+ * исключается из ротации до следующей успешной проверки.
+ * <p>
+ * Ключ выбирается при получении соединения, поэтому источник оборачивается
+ * в {@code LazyConnectionDataSourceProxy}: соединение берётся после того,
+ * как менеджер транзакций отметил транзакцию как read-only.
+ */
+@Slf4j
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    static final String PRIMARY = "primary";
+    private static final String LAG_SQL = """
+            SELECT COALESCE(CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                                 ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END, 0)
+            """;
+
+    private final List<ReplicaNode> replicas;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService lagChecker;
+
+    ReplicaRoutingDataSource(DataSource primary, List<ReplicaNode> replicas, Duration maxLag, Duration checkInterval) {
+        this.replicas = replicas;
+        this.maxLag = maxLag;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach(replica -> targets.put(replica.name(), replica.dataSource()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+
+        lagChecker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("replica-lag-check")
+                .daemon()
+                .factory());
+        lagChecker.scheduleWithFixedDelay(this::checkLag, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || ReadYourWrites.isStuckToPrimary()) {
+            return PRIMARY;
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            ReplicaNode replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica.name();
+            }
+        }
+        return PRIMARY;
+    }
+
+    private void checkLag() {
+        for (ReplicaNode replica : replicas) {
+            double lagSeconds;
+            try (Connection connection = replica.pool().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_SQL)) {
+                rs.next();
+                lagSeconds = rs.getDouble(1);
+            } catch (Exception e) {
+                lagSeconds = Double.POSITIVE_INFINITY;
+            }
+            replica.lagSeconds = lagSeconds;
+            boolean healthy = lagSeconds * 1000 <= maxLag.toMillis();
+            if (healthy != replica.healthy) {
+                log.warn("Replica {} is {} (lag {} s)", replica.name(), healthy ? "back in rotation" : "out of rotation",
+                        lagSeconds);
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void close() {
+        lagChecker.shutdownNow();
+        replicas.forEach(replica -> replica.pool().close());
+    }
+
+    /**
+     * Реплика и её состояние по последней проверке отставания.
+     * <p>
+     * Запросы приложения идут через {@code dataSource} — пул с обёртками пост-процессоров,
+     * проверка отставания и закрытие работают с самим пулом {@code pool}.
+     */
+    static final class ReplicaNode {
+        private final String name;
+        private final HikariDataSource pool;
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+        private volatile double lagSeconds = Double.NaN;
+
+        ReplicaNode(String name, HikariDataSource pool, DataSource dataSource) {
+            this.name = name;
+            this.pool = pool;
+            this.dataSource = dataSource;
+        }
+
+        String name() {
+            return name;
+        }
+
+        HikariDataSource pool() {
+            return pool;
+        }
+
+        DataSource dataSource() {
+            return dataSource;
+        }
+
+        double lagSeconds() {
+            return lagSeconds;
+        }
+    }
+}
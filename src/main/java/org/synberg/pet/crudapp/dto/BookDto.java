@@ -3,5 +3,11 @@ package org.synberg.pet.crudapp.dto;
 public record BookDto(
         Long id,
         String title,
-        String author
-) {};
+        String author,
+        boolean available,
+        Long version
+) {
+    public BookDto withAvailable(boolean available) {
+        return available == this.available ? this : new BookDto(id, title, author, available, version);
+    }
+};
@@ -7,5 +7,6 @@ public record LoanDto(
         UserDto user,
         BookDto book,
         LocalDateTime loanDate,
-        LocalDateTime returnDate
+        LocalDateTime returnDate,
+        Long version
 ) {};
@@ -0,0 +1,22 @@
+package org.synberg.pet.crudapp.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Займ без вложенных пользователя и книги ({@code embed=none}).
+ *
+ * @param id ID займа
+ * @param userId ID пользователя
+ * @param bookId ID книги
+ * @param loanDate дата выдачи
+ * @param returnDate дата возврата или {@code null}, если книга не возвращена
+ * @param version версия займа
+ */
+public record LoanRefDto(
+        Long id,
+        Long userId,
+        Long bookId,
+        LocalDateTime loanDate,
+        LocalDateTime returnDate,
+        Long version
+) {}
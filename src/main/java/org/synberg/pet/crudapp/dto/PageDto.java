@@ -0,0 +1,14 @@
+package org.synberg.pet.crudapp.dto;
+
+import java.util.List;
+
+/**
+ * Страница результатов курсорной (keyset) пагинации.
+ *
+ * @param items элементы страницы
+ * @param nextCursor непрозрачный курсор следующей страницы или {@code null}, если страница последняя
+ */
+public record PageDto<T>(
+        List<T> items,
+        String nextCursor
+) {}
@@ -3,5 +3,6 @@ package org.synberg.pet.crudapp.dto;
 public record UserDto(
         Long id,
         String name,
-        String email
+        String email,
+        Long version
 ) {}
@@ -0,0 +1,14 @@
+package org.synberg.pet.crudapp.dto.batch;
+
+/**
+ * Результат по одному элементу пакета.
+ *
+ * @param bookId ID книги; {@code null}, если займ для возврата не найден
+ * @param loanId ID созданного или возвращённого займа; {@code null}, если займ не создан или не найден
+ * @param status статус элемента
+ */
+public record LoanBatchItemDto(
+        Long bookId,
+        Long loanId,
+        LoanBatchStatus status
+) {}
@@ -0,0 +1,16 @@
+package org.synberg.pet.crudapp.dto.batch;
+
+import java.util.List;
+
+/**
+ * Сводка пакетной выдачи или пакетного возврата.
+ *
+ * @param succeeded количество выданных или возвращённых книг
+ * @param failed количество элементов, которые не удалось обработать
+ * @param items результаты в порядке запроса, без повторов
+ */
+public record LoanBatchResultDto(
+        int succeeded,
+        int failed,
+        List<LoanBatchItemDto> items
+) {}
@@ -0,0 +1,12 @@
+package org.synberg.pet.crudapp.dto.batch;
+
+/**
+ * Результат обработки одного элемента пакетной выдачи или пакетного возврата.
+ */
+public enum LoanBatchStatus {
+    LOANED,
+    RETURNED,
+    ALREADY_LOANED,
+    ALREADY_RETURNED,
+    NOT_FOUND
+}
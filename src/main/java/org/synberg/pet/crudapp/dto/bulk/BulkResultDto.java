@@ -0,0 +1,22 @@
+package org.synberg.pet.crudapp.dto.bulk;
+
+import java.util.List;
+
+/**
+ * Сводка массового импорта.
+ * <p>
+ * Созданные строки только подсчитываются; в {@code rows} попадают
+ * лишь первые 1000 дубликатов и невалидных строк, чтобы размер ответа
+ * не рос вместе с размером импорта. Счётчики учитывают все строки.
+ *
+ * @param created количество созданных записей
+ * @param duplicates количество строк, пропущенных как дубликаты
+ * @param invalid количество строк, не прошедших валидацию или не прочитанных
+ * @param rows результаты по первым строкам, которые не были созданы
+ */
+public record BulkResultDto(
+        long created,
+        long duplicates,
+        long invalid,
+        List<BulkRowResultDto> rows
+) {}
@@ -0,0 +1,14 @@
+package org.synberg.pet.crudapp.dto.bulk;
+
+/**
+ * Результат импорта строки, которая не была создана.
+ *
+ * @param row номер строки во входных данных, начиная с 1 (без учёта заголовка CSV)
+ * @param status статус строки
+ * @param message причина отказа
+ */
+public record BulkRowResultDto(
+        long row,
+        BulkRowStatus status,
+        String message
+) {}
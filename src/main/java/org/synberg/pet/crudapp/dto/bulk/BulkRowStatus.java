@@ -0,0 +1,9 @@
+package org.synberg.pet.crudapp.dto.bulk;
+
+/**
+ * Результат обработки одной строки массового импорта.
+ */
+public enum BulkRowStatus {
+    DUPLICATE,
+    INVALID
+}
@@ -0,0 +1,22 @@
+package org.synberg.pet.crudapp.dto.change;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись журнала изменений.
+ *
+ * @param seq номер записи; возрастает в порядке фиксации транзакций
+ * @param entity тип сущности
+ * @param entityId ID сущности
+ * @param operation операция
+ * @param version версия сущности после изменения или {@code null} для удаления
+ * @param changedAt момент записи
+ */
+public record ChangeDto(
+        long seq,
+        ChangeEntity entity,
+        long entityId,
+        ChangeOperation operation,
+        Long version,
+        LocalDateTime changedAt
+) {}
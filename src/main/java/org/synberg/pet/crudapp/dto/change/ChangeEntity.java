@@ -0,0 +1,10 @@
+package org.synberg.pet.crudapp.dto.change;
+
+/**
+ * Тип сущности в журнале изменений.
+ */
+public enum ChangeEntity {
+    USER,
+    BOOK,
+    LOAN
+}
@@ -0,0 +1,14 @@
+package org.synberg.pet.crudapp.dto.change;
+
+import java.util.List;
+
+/**
+ * Порция журнала изменений.
+ *
+ * @param changes записи в порядке возрастания {@code seq}
+ * @param next значение {@code since} для следующего запроса
+ */
+public record ChangeFeedDto(
+        List<ChangeDto> changes,
+        long next
+) {}
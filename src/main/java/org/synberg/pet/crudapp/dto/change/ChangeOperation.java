@@ -0,0 +1,15 @@
+package org.synberg.pet.crudapp.dto.change;
+
+/**
+ * Операция над сущностью в журнале изменений.
+ */
+public enum ChangeOperation {
+    CREATE,
+    UPDATE,
+    DELETE,
+    /**
+     * Возвращённый займ перенесён в архив: он больше не читается из {@code /api/loans/{id}},
+     * но остаётся в истории займов пользователя и книги.
+     */
+    ARCHIVE
+}
@@ -0,0 +1,21 @@
+package org.synberg.pet.crudapp.dto.create;
+
+import jakarta.validation.constraints.*;
+
+import java.util.List;
+
+/**
+ * DTO для пакетной выдачи книг одному пользователю.
+ *
+ * @param userEmail email пользователя
+ * @param bookIds ID книг
+ */
+public record LoanBatchCreateDto(
+        @Email(message = "Invalid email")
+        @NotBlank(message = "Email is required")
+        String userEmail,
+
+        @NotEmpty(message = "Book IDs are required")
+        @Size(max = 100, message = "At most 100 books per batch")
+        List<@NotNull(message = "Book ID is required") @Positive(message = "Book ID must be positive") Long> bookIds
+) {}
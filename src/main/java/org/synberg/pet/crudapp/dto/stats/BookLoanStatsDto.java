@@ -0,0 +1,16 @@
+package org.synberg.pet.crudapp.dto.stats;
+
+/**
+ * Число выдач книги.
+ *
+ * @param bookId ID книги
+ * @param title название книги
+ * @param author автор книги
+ * @param loanCount число выдач, включая архивные займы
+ */
+public record BookLoanStatsDto(
+        Long bookId,
+        String title,
+        String author,
+        long loanCount
+) {}
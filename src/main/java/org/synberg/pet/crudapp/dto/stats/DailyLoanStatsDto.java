@@ -0,0 +1,16 @@
+package org.synberg.pet.crudapp.dto.stats;
+
+import java.time.LocalDate;
+
+/**
+ * Число выдач и возвратов за день.
+ *
+ * @param day день
+ * @param checkouts число займов с датой выдачи в этот день
+ * @param returns число займов с датой возврата в этот день
+ */
+public record DailyLoanStatsDto(
+        LocalDate day,
+        long checkouts,
+        long returns
+) {}
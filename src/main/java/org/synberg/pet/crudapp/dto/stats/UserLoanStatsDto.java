@@ -0,0 +1,16 @@
+package org.synberg.pet.crudapp.dto.stats;
+
+/**
+ * Статистика займов пользователя.
+ *
+ * @param userId ID пользователя
+ * @param activeLoans число невозвращённых займов
+ * @param totalLoans число всех займов, включая архивные
+ * @param averageLoanSeconds средняя длительность возвращённых займов в секундах или {@code null}, если таких нет
+ */
+public record UserLoanStatsDto(
+        Long userId,
+        long activeLoans,
+        long totalLoans,
+        Long averageLoanSeconds
+) {}
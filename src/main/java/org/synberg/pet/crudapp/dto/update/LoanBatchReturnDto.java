@@ -0,0 +1,18 @@
+package org.synberg.pet.crudapp.dto.update;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO для пакетного возврата книг.
+ *
+ * @param loanIds ID займов
+ */
+public record LoanBatchReturnDto(
+        @NotEmpty(message = "Loan IDs are required")
+        @Size(max = 100, message = "At most 100 loans per batch")
+        List<@NotNull(message = "Loan ID is required") Long> loanIds
+) {}
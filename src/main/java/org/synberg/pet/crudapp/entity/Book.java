@@ -10,10 +10,15 @@ import lombok.Setter;
 @Table(name = "books")
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_id_seq")
+    @SequenceGenerator(name = "books_id_seq", sequenceName = "books_id_seq", allocationSize = SequenceIds.ALLOCATION_SIZE)
     private Long id;
     @Column(nullable = false)
     private String title;
     @Column(nullable = false)
     private String author;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
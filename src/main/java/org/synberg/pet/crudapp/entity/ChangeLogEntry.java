@@ -0,0 +1,40 @@
+package org.synberg.pet.crudapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+import org.synberg.pet.crudapp.dto.change.ChangeEntity;
+import org.synberg.pet.crudapp.dto.change.ChangeOperation;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись журнала изменений; только для чтения, записи добавляет {@code ChangeLogRepository#append},
+ * а номер {@code seq} присваивает {@code ChangeLogRepository#publish} после фиксации.
+ */
+@Entity
+@Getter
+@Immutable
+@Table(name = "change_log")
+public class ChangeLogEntry {
+    @Id
+    private Long id;
+
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private ChangeEntity entity;
+
+    @Column(nullable = false)
+    private Long entityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private ChangeOperation operation;
+
+    private Long version;
+
+    @Column(nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -12,16 +12,20 @@ import java.time.LocalDateTime;
 @Table(name = "loans")
 public class Loan {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loans_id_seq")
+    @SequenceGenerator(name = "loans_id_seq", sequenceName = "loans_id_seq", allocationSize = SequenceIds.ALLOCATION_SIZE)
     private Long id;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     private User user;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     private Book book;
 
     private LocalDateTime loanDate;
     private LocalDateTime returnDate;
-}
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+}
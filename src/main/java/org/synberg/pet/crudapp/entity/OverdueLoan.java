@@ -0,0 +1,22 @@
+package org.synberg.pet.crudapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@Table(name = "overdue_loans")
+public class OverdueLoan {
+    @Id
+    private Long loanId;
+
+    @Column(nullable = false)
+    private LocalDateTime dueDate;
+
+    @Column(nullable = false)
+    private LocalDateTime detectedAt;
+}
@@ -0,0 +1,15 @@
+package org.synberg.pet.crudapp.entity;
+
+/**
+ * Параметры выделения идентификаторов из последовательностей.
+ * <p>
+ * Шаг последовательностей {@code *_id_seq} равен {@link #ALLOCATION_SIZE}: Hibernate
+ * (pooled-оптимизатор) и массовый импорт получают одним вызовом {@code nextval}
+ * блок из {@code ALLOCATION_SIZE} идентификаторов, заканчивающийся полученным значением.
+ */
+public final class SequenceIds {
+    public static final int ALLOCATION_SIZE = 50;
+
+    private SequenceIds() {
+    }
+}
@@ -10,7 +10,8 @@ import lombok.Setter;
 @Table(name = "users")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = SequenceIds.ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
@@ -18,5 +19,8 @@ public class User {
 
     @Column(nullable = false, unique = true)
     private String email;
-}
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+}
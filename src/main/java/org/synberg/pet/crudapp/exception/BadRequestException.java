@@ -0,0 +1,10 @@
+package org.synberg.pet.crudapp.exception;
+
+/**
+ * Исключение, выбрасываемое при некорректных параметрах запроса (курсор, лимит и т.п.).
+ */
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
@@ -1,10 +1,16 @@
 package org.synberg.pet.crudapp.exception;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -35,5 +41,53 @@ public class GlobalExceptionHandler {
         error.put("message", ex.getMessage());
         return ResponseEntity.status(400).body(error);
     }
-}
 
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequestException(
+            BadRequestException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        return ResponseEntity.badRequest().body(error);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Map<String, String>> handlePreconditionFailedException(
+            PreconditionFailedException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(error);
+    }
+
+    @ExceptionHandler(GoneException.class)
+    public ResponseEntity<Map<String, String>> handleGoneException(
+            GoneException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.GONE).body(error);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<Map<String, String>> handleServiceUnavailableException(
+            ServiceUnavailableException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(error);
+    }
+
+    @ExceptionHandler({CannotCreateTransactionException.class, CannotGetJdbcConnectionException.class})
+    public ResponseEntity<Map<String, String>> handleConnectionUnavailableException(
+            Exception ex) {
+        return handleServiceUnavailableException(
+                new ServiceUnavailableException("Database connection is not available", Duration.ofSeconds(1)));
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockingFailureException(
+            OptimisticLockingFailureException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", "Resource was modified concurrently");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+}
@@ -0,0 +1,10 @@
+package org.synberg.pet.crudapp.exception;
+
+/**
+ * Исключение, выбрасываемое, когда запрошенные данные уже удалены по сроку хранения.
+ */
+public class GoneException extends RuntimeException {
+    public GoneException(String message) {
+        super(message);
+    }
+}
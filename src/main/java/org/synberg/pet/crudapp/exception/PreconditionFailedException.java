@@ -0,0 +1,10 @@
+package org.synberg.pet.crudapp.exception;
+
+/**
+ * Исключение, выбрасываемое, когда версия ресурса не совпадает с заголовком {@code If-Match}.
+ */
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package org.synberg.pet.crudapp.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Исключение, выбрасываемое, когда запрос отклонён из-за перегрузки.
+ */
+@Getter
+public class ServiceUnavailableException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public ServiceUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,30 @@
+package org.synberg.pet.crudapp.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Optional;
+
+/**
+ * Хранилище ответов в памяти с ограничением размера и сроком жизни записей.
+ */
+class CaffeineIdempotencyStore implements IdempotencyStore {
+    private final Cache<String, StoredResponse> responses;
+
+    CaffeineIdempotencyStore(IdempotencyProperties properties) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(properties.maxEntries())
+                .expireAfterWrite(properties.ttl())
+                .build();
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        return Optional.ofNullable(responses.getIfPresent(key));
+    }
+
+    @Override
+    public boolean save(String key, StoredResponse response) {
+        return responses.asMap().putIfAbsent(key, response) == null;
+    }
+}
@@ -0,0 +1,138 @@
+package org.synberg.pet.crudapp.idempotency;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Запрос, считающий отпечаток SHA-256 метода, пути с параметрами и тела по мере чтения тела.
+ * <p>
+ * Тело не буферизуется: контроллер читает его потоком, как без обёртки, а
+ * {@link #fingerprint()} дочитывает непрочитанный остаток. Так отпечаток массового
+ * импорта не требует держать файл в памяти.
+ */
+class FingerprintingRequest extends HttpServletRequestWrapper {
+    private final MessageDigest digest;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+    private String fingerprint;
+
+    FingerprintingRequest(HttpServletRequest request) {
+        super(request);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        String target = request.getMethod() + " " + request.getRequestURI()
+                + (request.getQueryString() == null ? "" : "?" + request.getQueryString()) + "\n";
+        digest.update(target.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new DigestingInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+        return reader;
+    }
+
+    /**
+     * Дочитывает тело и возвращает отпечаток запроса.
+     *
+     * @return SHA-256 в шестнадцатеричном виде
+     * @throws IOException если тело не удалось дочитать
+     */
+    String fingerprint() throws IOException {
+        if (fingerprint == null) {
+            ((DigestingInputStream) getInputStream()).drain();
+            fingerprint = HexFormat.of().formatHex(digest.digest());
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Поток тела, обновляющий отпечаток. При закрытии (Jackson закрывает поток после разбора
+     * документа) остаток тела дочитывается, чтобы отпечаток всегда покрывал тело целиком.
+     */
+    private class DigestingInputStream extends ServletInputStream {
+        private final ServletInputStream delegate;
+        private boolean closed;
+
+        DigestingInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b != -1) {
+                digest.update((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, len);
+            if (n > 0) {
+                digest.update(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                drain();
+                closed = true;
+                delegate.close();
+            }
+        }
+
+        void drain() throws IOException {
+            if (closed) {
+                return;
+            }
+            byte[] buffer = new byte[8192];
+            while (read(buffer, 0, buffer.length) != -1) {
+                // Остаток тела нужен только для отпечатка
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.synberg.pet.crudapp.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Поддержка заголовка {@code Idempotency-Key} для изменяющих запросов к пользователям, книгам и займам.
+ * <p>
+ * По умолчанию ответы хранятся в памяти экземпляра; {@code app.idempotency.store=jdbc}
+ * переключает хранилище на таблицу {@code idempotency_keys}, общую для всех экземпляров.
+ */
+@Configuration
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.idempotency.store", havingValue = "memory", matchIfMissing = true)
+    IdempotencyStore caffeineIdempotencyStore(IdempotencyProperties properties) {
+        return new CaffeineIdempotencyStore(properties);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.idempotency.store", havingValue = "jdbc")
+    IdempotencyStore jdbcIdempotencyStore(JdbcTemplate jdbcTemplate, IdempotencyProperties properties) {
+        return new JdbcIdempotencyStore(jdbcTemplate, properties);
+    }
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyStore store,
+                                                                      IdempotencyProperties properties,
+                                                                      ObjectMapper objectMapper) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+                new IdempotencyFilter(store, properties.waitTimeout(), objectMapper));
+        registration.addUrlPatterns("/api/users/*", "/api/books/*", "/api/loans/*");
+        return registration;
+    }
+}
@@ -0,0 +1,156 @@
+package org.synberg.pet.crudapp.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Повтор ответа на {@code POST}/{@code PATCH} с заголовком {@value #HEADER}.
+ * <p>
+ * Первый ответ на ключ (кроме {@code 5xx}) сохраняется в {@link IdempotencyStore} вместе
+ * с отпечатком запроса — SHA-256 метода, пути и тела; повторный запрос с тем же ключом
+ * и отпечатком получает сохранённый ответ с заголовком {@value #REPLAYED_HEADER} и не доходит
+ * до контроллера. Тот же ключ с другим запросом отклоняется с {@code 422 Unprocessable Entity}.
+ * Повтор, пришедший, пока первый запрос ещё выполняется на этом экземпляре, ждёт его результата
+ * не дольше {@code app.idempotency.wait-timeout}.
+ */
+class IdempotencyFilter extends OncePerRequestFilter {
+    static final String HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Set<String> METHODS = Set.of(HttpMethod.POST.name(), HttpMethod.PATCH.name());
+
+    private final IdempotencyStore store;
+    private final Duration waitTimeout;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    IdempotencyFilter(IdempotencyStore store, Duration waitTimeout, ObjectMapper objectMapper) {
+        this.store = store;
+        this.waitTimeout = waitTimeout;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !METHODS.contains(request.getMethod()) || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, HEADER + " must be 1.." + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        FingerprintingRequest fingerprinting = new FingerprintingRequest(request);
+        while (true) {
+            Optional<StoredResponse> stored = store.find(key);
+            if (stored.isPresent()) {
+                replay(stored.get(), fingerprinting, response);
+                return;
+            }
+            CompletableFuture<StoredResponse> own = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(key, own);
+            if (running == null) {
+                execute(key, own, fingerprinting, response, chain);
+                return;
+            }
+            StoredResponse result;
+            try {
+                result = running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                writeError(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (ExecutionException e) {
+                result = null;
+            }
+            if (result != null) {
+                replay(result, fingerprinting, response);
+                return;
+            }
+            // Первый запрос завершился без сохранённого ответа — выполняем запрос сами
+        }
+    }
+
+    private void execute(String key, CompletableFuture<StoredResponse> own, FingerprintingRequest request,
+                         HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        StoredResponse result = null;
+        try {
+            // Ответ мог быть сохранён между проверкой хранилища и регистрацией запроса
+            Optional<StoredResponse> stored = store.find(key);
+            if (stored.isPresent()) {
+                result = stored.get();
+                replay(result, request, response);
+                return;
+            }
+            ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            chain.doFilter(request, wrapper);
+            if (!request.isAsyncStarted() && wrapper.getStatus() < 500) {
+                result = new StoredResponse(request.fingerprint(), wrapper.getStatus(), wrapper.getContentType(),
+                        wrapper.getHeader(HttpHeaders.ETAG), wrapper.getHeader(HttpHeaders.LOCATION),
+                        wrapper.getContentAsByteArray());
+                if (!store.save(key, result)) {
+                    // Другой экземпляр успел сохранить ответ первым — ожидающим отдаём его
+                    result = store.find(key).orElse(result);
+                }
+            }
+            wrapper.copyBodyToResponse();
+        } finally {
+            inFlight.remove(key, own);
+            own.complete(result);
+        }
+    }
+
+    private void replay(StoredResponse stored, FingerprintingRequest request, HttpServletResponse response)
+            throws IOException {
+        if (!stored.fingerprint().equals(request.fingerprint())) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " has already been used with a different request");
+            return;
+        }
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.eTag() != null) {
+            response.setHeader(HttpHeaders.ETAG, stored.eTag());
+        }
+        if (stored.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, stored.location());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("message", message));
+    }
+}
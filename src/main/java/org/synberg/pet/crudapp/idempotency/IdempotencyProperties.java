@@ -0,0 +1,33 @@
+package org.synberg.pet.crudapp.idempotency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки ключей идемпотентности ({@code app.idempotency.*}).
+ *
+ * @param store хранилище сохранённых ответов
+ * @param ttl сколько хранится ответ на ключ
+ * @param maxEntries максимальное количество ответов в памяти
+ * @param waitTimeout сколько повторный запрос ждёт завершения выполняющегося запроса с тем же ключом
+ */
+@ConfigurationProperties("app.idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("memory") Store store,
+        @DefaultValue("24h") Duration ttl,
+        @DefaultValue("10000") long maxEntries,
+        @DefaultValue("30s") Duration waitTimeout
+) {
+
+    /**
+     * Хранилище сохранённых ответов.
+     */
+    public enum Store {
+        /** Caffeine в памяти экземпляра приложения. */
+        MEMORY,
+        /** Таблица {@code idempotency_keys}, общая для всех экземпляров. */
+        JDBC
+    }
+}
@@ -0,0 +1,26 @@
+package org.synberg.pet.crudapp.idempotency;
+
+import java.util.Optional;
+
+/**
+ * Хранилище ответов на запросы с ключом идемпотентности.
+ */
+interface IdempotencyStore {
+
+    /**
+     * Находит сохранённый ответ.
+     *
+     * @param key значение заголовка {@code Idempotency-Key}
+     * @return ответ или пустой результат, если ключ не встречался или истёк
+     */
+    Optional<StoredResponse> find(String key);
+
+    /**
+     * Сохраняет ответ; действующий ответ на тот же ключ не перезаписывается, истёкший заменяется.
+     *
+     * @param key значение заголовка {@code Idempotency-Key}
+     * @param response ответ
+     * @return {@code false}, если на ключ уже сохранён действующий ответ
+     */
+    boolean save(String key, StoredResponse response);
+}
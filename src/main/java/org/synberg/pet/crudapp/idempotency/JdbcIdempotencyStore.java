@@ -0,0 +1,66 @@
+package org.synberg.pet.crudapp.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Хранилище ответов в таблице {@code idempotency_keys}.
+ * <p>
+ * Повтор запроса распознаётся на любом экземпляре приложения и после перезапуска.
+ * Истёкшие записи не читаются, заменяются новым ответом на тот же ключ и удаляются фоновой задачей.
+ */
+@Slf4j
+class JdbcIdempotencyStore implements IdempotencyStore {
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+
+    JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, IdempotencyProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = properties.ttl();
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        return jdbcTemplate.query("""
+                        SELECT fingerprint, status, content_type, etag, location, body
+                        FROM idempotency_keys
+                        WHERE key = ? AND expires_at > now()
+                        """,
+                (rs, rowNum) -> new StoredResponse(rs.getString("fingerprint"), rs.getInt("status"),
+                        rs.getString("content_type"), rs.getString("etag"), rs.getString("location"),
+                        rs.getBytes("body")),
+                key).stream().findFirst();
+    }
+
+    @Override
+    public boolean save(String key, StoredResponse response) {
+        return jdbcTemplate.update("""
+                        INSERT INTO idempotency_keys
+                            (key, fingerprint, status, content_type, etag, location, body, expires_at)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, now() + make_interval(secs => ?))
+                        ON CONFLICT (key) DO UPDATE SET
+                            fingerprint = EXCLUDED.fingerprint,
+                            status = EXCLUDED.status,
+                            content_type = EXCLUDED.content_type,
+                            etag = EXCLUDED.etag,
+                            location = EXCLUDED.location,
+                            body = EXCLUDED.body,
+                            expires_at = EXCLUDED.expires_at
+                        WHERE idempotency_keys.expires_at <= now()
+                        """,
+                key, response.fingerprint(), response.status(), response.contentType(), response.eTag(), response.location(),
+                response.body(), (double) ttl.toSeconds()) > 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval:10m}")
+    public void deleteExpired() {
+        int deleted = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at <= now()");
+        if (deleted > 0) {
+            log.debug("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+}
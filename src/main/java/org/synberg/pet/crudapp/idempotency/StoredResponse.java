@@ -0,0 +1,14 @@
+package org.synberg.pet.crudapp.idempotency;
+
+/**
+ * Сохранённый ответ на запрос с ключом идемпотентности.
+ *
+ * @param fingerprint отпечаток запроса, на который дан ответ ({@link FingerprintingRequest})
+ * @param status HTTP-статус
+ * @param contentType заголовок {@code Content-Type} или {@code null}
+ * @param eTag заголовок {@code ETag} или {@code null}
+ * @param location заголовок {@code Location} или {@code null}
+ * @param body тело ответа
+ */
+record StoredResponse(String fingerprint, int status, String contentType, String eTag, String location, byte[] body) {
+}
@@ -0,0 +1,82 @@
+package org.synberg.pet.crudapp.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Метрики производительности для Prometheus ({@code /actuator/prometheus}).
+ * <ul>
+ *     <li>{@code http.server.requests} — гистограммы задержек с тегом {@code handler} (метод контроллера)</li>
+ *     <li>{@code http.server.requests.statements} — количество SQL-операторов на запрос</li>
+ *     <li>{@code hikaricp.*} и {@code hibernate.*} — пул соединений и статистика Hibernate (автоконфигурация)</li>
+ * </ul>
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public ServerRequestObservationConvention handlerTaggingConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                Object handler = context.getCarrier().getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+                String name = handler instanceof HandlerMethod method
+                        ? method.getBeanType().getSimpleName() + "." + method.getMethod().getName()
+                        : "none";
+                return super.getLowCardinalityKeyValues(context).and("handler", name);
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<StatementCountFilter> statementCountFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<StatementCountFilter> registration =
+                new FilterRegistrationBean<>(new StatementCountFilter(meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Bean
+    public static StatementCountingDataSourcePostProcessor statementCountingDataSourcePostProcessor() {
+        return new StatementCountingDataSourcePostProcessor();
+    }
+
+    /**
+     * Оборачивает физические пулы HikariCP (основной базы и реплик), но не маршрутизирующий
+     * {@code DataSource} над ними, поэтому каждый оператор считается ровно один раз.
+     */
+    static class StatementCountingDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            try {
+                return bean instanceof DataSource dataSource
+                        && dataSource.isWrapperFor(HikariDataSource.class)
+                        && !dataSource.isWrapperFor(StatementCountingDataSource.class)
+                        ? new StatementCountingDataSource(dataSource)
+                        : bean;
+            } catch (SQLException e) {
+                throw new IllegalStateException("Cannot inspect DataSource " + beanName, e);
+            }
+        }
+
+        @Override
+        public int getOrder() {
+            return 0;
+        }
+    }
+}
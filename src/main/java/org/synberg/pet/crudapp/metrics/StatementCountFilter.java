@@ -0,0 +1,40 @@
+package org.synberg.pet.crudapp.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Публикует количество SQL-операторов на HTTP-запрос
+ * в метрике {@code http.server.requests.statements} с тегами {@code method} и {@code uri}.
+ */
+@RequiredArgsConstructor
+class StatementCountFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        StatementCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int statements = StatementCounter.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("http.server.requests.statements")
+                    .description("SQL statements executed per HTTP request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                    .register(meterRegistry)
+                    .record(statements);
+        }
+    }
+}
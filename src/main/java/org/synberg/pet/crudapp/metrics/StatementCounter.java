@@ -0,0 +1,31 @@
+package org.synberg.pet.crudapp.metrics;
+
+/**
+ * Счётчик SQL-операторов, выполненных в текущем потоке обработки запроса.
+ * <p>
+ * Подсчёт включается только между {@link #start()} и {@link #stop()},
+ * поэтому фоновые задачи и старт приложения на него не влияют.
+ */
+final class StatementCounter {
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    private StatementCounter() {
+    }
+
+    static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    static void increment() {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+
+    static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+}
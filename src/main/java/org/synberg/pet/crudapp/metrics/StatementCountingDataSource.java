@@ -0,0 +1,50 @@
+package org.synberg.pet.crudapp.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * {@link DataSource}, считающий подготовленные SQL-операторы для {@link StatementCounter}.
+ * <p>
+ * Учитываются и запросы Hibernate, и запросы через {@code JdbcTemplate};
+ * JDBC-батч считается одним оператором.
+ */
+class StatementCountingDataSource extends DelegatingDataSource {
+    private static final Set<String> STATEMENT_METHODS = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    StatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    private static Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (STATEMENT_METHODS.contains(method.getName())) {
+                        StatementCounter.increment();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,49 @@
+package org.synberg.pet.crudapp.repository;
+
+import org.synberg.pet.crudapp.dto.create.BookCreateDto;
+import org.synberg.pet.crudapp.entity.Book;
+
+import java.util.List;
+
+public interface BookRepositoryCustom {
+
+    /**
+     * Вставляет книги одним JDBC-батчем, пропуская уже существующие пары название+автор.
+     *
+     * @param books книги для вставки
+     * @return ID созданной книги для каждой строки или 0, если это дубликат
+     */
+    long[] insertIgnoringDuplicates(List<BookCreateDto> books);
+
+    /**
+     * Полнотекстовый поиск по названию и автору с ранжированием по релевантности.
+     *
+     * @param query поисковый запрос в синтаксисе {@code websearch_to_tsquery}
+     * @param offset количество пропускаемых результатов
+     * @param limit максимальное количество результатов
+     * @return найденные книги, сначала наиболее релевантные
+     */
+    List<Book> search(String query, long offset, int limit);
+
+    /**
+     * Автодополнение по названию: совпадения по префиксу, затем похожие с учётом опечаток.
+     *
+     * @param prefix начало названия
+     * @param offset количество пропускаемых результатов
+     * @param limit максимальное количество результатов
+     * @return подходящие книги, сначала совпадающие по префиксу
+     */
+    List<Book> autocomplete(String prefix, long offset, int limit);
+
+    /**
+     * Страница свободных книг (без активного займа) в порядке возрастания идентификатора.
+     * <p>
+     * Проверка займов выполняется в том же запросе через уникальный индекс активных займов,
+     * поэтому выданные книги не читаются в приложение.
+     *
+     * @param afterId идентификатор, после которого начинается страница
+     * @param limit максимальное количество результатов
+     * @return свободные книги
+     */
+    List<Book> findAvailable(long afterId, int limit);
+}
@@ -0,0 +1,95 @@
+package org.synberg.pet.crudapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.annotation.Transactional;
+import org.synberg.pet.crudapp.dto.create.BookCreateDto;
+import org.synberg.pet.crudapp.entity.Book;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+@RequiredArgsConstructor
+class BookRepositoryImpl implements BookRepositoryCustom {
+    private static final RowMapper<Book> BOOK_MAPPER = (rs, rowNum) -> {
+        Book book = new Book();
+        book.setId(rs.getLong("id"));
+        book.setTitle(rs.getString("title"));
+        book.setAuthor(rs.getString("author"));
+        book.setVersion(rs.getLong("version"));
+        return book;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
+
+    @Override
+    @Transactional
+    public long[] insertIgnoringDuplicates(List<BookCreateDto> books) {
+        long[] ids = idAllocator.allocate("books_id_seq", books.size());
+        int[] counts = jdbcTemplate.batchUpdate(
+                "INSERT INTO books (id, title, author) VALUES (?, ?, ?) ON CONFLICT (title, author) DO NOTHING",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        BookCreateDto book = books.get(i);
+                        ps.setLong(1, ids[i]);
+                        ps.setString(2, book.title());
+                        ps.setString(3, book.author());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return books.size();
+                    }
+                });
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                ids[i] = 0;
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public List<Book> search(String query, long offset, int limit) {
+        return jdbcTemplate.query("""
+                SELECT id, title, author, version
+                FROM books, websearch_to_tsquery('simple', ?) query
+                WHERE search_vector @@ query
+                ORDER BY ts_rank_cd(search_vector, query) DESC, id
+                LIMIT ? OFFSET ?
+                """, BOOK_MAPPER, query, limit, offset);
+    }
+
+    @Override
+    public List<Book> findAvailable(long afterId, int limit) {
+        return jdbcTemplate.query("""
+                SELECT b.id, b.title, b.author, b.version
+                FROM books b
+                WHERE b.id > ?
+                  AND NOT EXISTS (SELECT 1 FROM loans l WHERE l.book_id = b.id AND l.return_date IS NULL)
+                ORDER BY b.id
+                LIMIT ?
+                """, BOOK_MAPPER, afterId, limit);
+    }
+
+    @Override
+    public List<Book> autocomplete(String prefix, long offset, int limit) {
+        String pattern = escapeLike(prefix) + "%";
+        return jdbcTemplate.query("""
+                SELECT id, title, author, version
+                FROM books
+                WHERE title ILIKE ? OR ? <% title
+                ORDER BY title ILIKE ? DESC, word_similarity(?, title) DESC, id
+                LIMIT ? OFFSET ?
+                """, BOOK_MAPPER, pattern, prefix, pattern, prefix, limit, offset);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
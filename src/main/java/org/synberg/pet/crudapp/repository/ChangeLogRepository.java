@@ -0,0 +1,16 @@
+package org.synberg.pet.crudapp.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.synberg.pet.crudapp.entity.ChangeLogEntry;
+
+import java.util.List;
+
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long>, ChangeLogRepositoryCustom {
+
+    List<ChangeLogEntry> findBySeqGreaterThanOrderBySeqAsc(Long seq, Limit limit);
+
+    @Query("select coalesce(max(c.seq), 0) from ChangeLogEntry c")
+    long findMaxSeq();
+}
@@ -0,0 +1,85 @@
+package org.synberg.pet.crudapp.repository;
+
+import org.synberg.pet.crudapp.dto.change.ChangeEntity;
+import org.synberg.pet.crudapp.dto.change.ChangeOperation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+public interface ChangeLogRepositoryCustom {
+
+    /**
+     * Дописывает изменения в журнал одним {@code INSERT}.
+     * <p>
+     * Записи вставляются без номера {@code seq} и без блокировок журнала; номер им присвоит
+     * {@link #publish} после фиксации транзакции.
+     *
+     * @param changes изменения в порядке выполнения
+     */
+    void append(List<Change> changes);
+
+    /**
+     * Присваивает номера {@code seq} порции зафиксированных записей в порядке вставки.
+     * <p>
+     * Публикация видит только зафиксированные записи и выполняется под блокировкой
+     * {@code FOR UPDATE SKIP LOCKED} строки {@code change-log-publish}, поэтому номера
+     * выдаются по возрастанию и становятся видны читателям в том же порядке: читатель,
+     * получивший записи до {@code seq}, не увидит позже записи с меньшим номером.
+     *
+     * @param batchSize максимальный размер порции
+     * @return количество опубликованных записей или пустой результат, если публикацию
+     * выполняет другой экземпляр приложения
+     */
+    OptionalInt publish(int batchSize);
+
+    /**
+     * Возвращает последний {@code seq}, удалённый по сроку хранения или компактизацией.
+     * <p>
+     * Клиент, прочитавший журнал до меньшего номера, пропустил бы удалённые записи
+     * и должен выполнить полную выгрузку.
+     *
+     * @return номер записи; {@code 0}, если из журнала ещё ничего не удалялось
+     */
+    long findTruncatedSeq();
+
+    /**
+     * Удаляет порцию записей, у которых есть более поздняя запись той же сущности,
+     * и сдвигает границу усечения до последней удалённой.
+     * <p>
+     * Компактизируется префикс ленты до первой записи не старше {@code before}, в порядке {@code seq}.
+     * Граница блокируется {@code FOR UPDATE SKIP LOCKED}; если её держит другой экземпляр
+     * приложения, результат пустой.
+     *
+     * @param before компактизируются записи до первой записи не старше этого момента
+     * @param batchSize максимальный размер порции
+     * @return количество удалённых записей или пустой результат, если граница заблокирована
+     */
+    OptionalLong compact(LocalDateTime before, int batchSize);
+
+    /**
+     * Удаляет порцию записей старше срока хранения и сдвигает границу усечения.
+     * <p>
+     * Удаляется префикс ленты до первой записи не старше {@code before}, в порядке {@code seq}:
+     * время записи растёт не строго вместе с номером, и удаление по времени оставило бы
+     * записи ниже границы усечения или удалило бы записи выше неё.
+     * Граница блокируется {@code FOR UPDATE SKIP LOCKED}; если её держит другой экземпляр
+     * приложения, результат пустой.
+     *
+     * @param before удаляются записи до первой записи не старше этого момента
+     * @param batchSize максимальный размер порции
+     * @return количество удалённых записей или пустой результат, если граница заблокирована
+     */
+    OptionalLong truncate(LocalDateTime before, int batchSize);
+
+    /**
+     * Изменение для записи в журнал.
+     *
+     * @param entity тип сущности
+     * @param entityId ID сущности
+     * @param operation операция
+     * @param version версия после изменения или {@code null} для удаления
+     */
+    record Change(ChangeEntity entity, long entityId, ChangeOperation operation, Long version) {}
+}
@@ -0,0 +1,150 @@
+package org.synberg.pet.crudapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+@RequiredArgsConstructor
+class ChangeLogRepositoryImpl implements ChangeLogRepositoryCustom {
+    private static final String WATERMARK = "change-log";
+    private static final String PUBLISHER = "change-log-publish";
+    private static final String APPEND_SQL = """
+            INSERT INTO change_log (entity, entity_id, operation, version)
+            SELECT entity, entity_id, operation, version
+            FROM unnest(CAST(:entities AS varchar[]), CAST(:entityIds AS bigint[]),
+                        CAST(:operations AS varchar[]), CAST(:versions AS bigint[]))
+                     WITH ORDINALITY AS c(entity, entity_id, operation, version, position)
+            ORDER BY position
+            """;
+    private static final String PUBLISH_SQL = """
+            UPDATE change_log c
+            SET seq = :last + r.position
+            FROM (
+                SELECT id, row_number() OVER (ORDER BY id) AS position
+                FROM change_log
+                WHERE seq IS NULL
+                ORDER BY id
+                LIMIT :batchSize
+            ) r
+            WHERE c.id = r.id
+            """;
+    // Граница по сроку в терминах seq: последний номер перед первой опубликованной записью
+    // не старше :before. Время записи растёт не строго вместе с seq (номер присваивается
+    // после фиксации), поэтому граница отсекает префикс ленты, а не все старые записи
+    private static final String BOUNDARY_SQL = """
+            SELECT COALESCE(
+                (SELECT seq - 1 FROM change_log WHERE seq IS NOT NULL AND changed_at >= :before ORDER BY seq LIMIT 1),
+                (SELECT max(seq) FROM change_log))
+            """;
+    private static final String COMPACT_SQL = """
+            WITH deleted AS (
+                DELETE FROM change_log
+                WHERE id IN (
+                    SELECT c.id FROM change_log c
+                    WHERE c.seq <= (%s)
+                      AND EXISTS (
+                          SELECT 1 FROM change_log n
+                          WHERE n.entity = c.entity AND n.entity_id = c.entity_id AND n.seq > c.seq
+                      )
+                    ORDER BY c.seq
+                    LIMIT :batchSize
+                )
+                RETURNING seq
+            ), watermark AS (
+                UPDATE job_watermarks
+                SET position_id = GREATEST(position_id, (SELECT max(seq) FROM deleted)),
+                    position_date = now()
+                WHERE name = :job AND EXISTS (SELECT 1 FROM deleted)
+            )
+            SELECT count(*) FROM deleted
+            """.formatted(BOUNDARY_SQL);
+    private static final String TRUNCATE_SQL = """
+            WITH deleted AS (
+                DELETE FROM change_log
+                WHERE seq IN (
+                    SELECT seq FROM change_log
+                    WHERE seq <= (%s)
+                    ORDER BY seq
+                    LIMIT :batchSize
+                )
+                RETURNING seq
+            ), watermark AS (
+                UPDATE job_watermarks
+                SET position_id = GREATEST(position_id, (SELECT max(seq) FROM deleted)),
+                    position_date = now()
+                WHERE name = :job AND EXISTS (SELECT 1 FROM deleted)
+            )
+            SELECT count(*) FROM deleted
+            """.formatted(BOUNDARY_SQL);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public void append(List<Change> changes) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("entities", changes.stream().map(c -> c.entity().name()).toArray(String[]::new))
+                .addValue("entityIds", changes.stream().map(Change::entityId).toArray(Long[]::new))
+                .addValue("operations", changes.stream().map(c -> c.operation().name()).toArray(String[]::new))
+                .addValue("versions", changes.stream().map(Change::version).toArray(Long[]::new));
+        jdbcTemplate.update(APPEND_SQL, params);
+    }
+
+    @Override
+    public OptionalInt publish(int batchSize) {
+        List<Long> locked = jdbcTemplate.queryForList(
+                "SELECT position_id FROM job_watermarks WHERE name = :job FOR UPDATE SKIP LOCKED",
+                new MapSqlParameterSource("job", PUBLISHER), Long.class);
+        if (locked.isEmpty()) {
+            return OptionalInt.empty();
+        }
+        long last = locked.getFirst();
+        int published = jdbcTemplate.update(PUBLISH_SQL, new MapSqlParameterSource()
+                .addValue("last", last)
+                .addValue("batchSize", batchSize));
+        if (published > 0) {
+            jdbcTemplate.update(
+                    "UPDATE job_watermarks SET position_id = :position, position_date = now() WHERE name = :job",
+                    new MapSqlParameterSource()
+                            .addValue("position", last + published)
+                            .addValue("job", PUBLISHER));
+        }
+        return OptionalInt.of(published);
+    }
+
+    @Override
+    public long findTruncatedSeq() {
+        Long seq = jdbcTemplate.queryForObject("SELECT position_id FROM job_watermarks WHERE name = :job",
+                new MapSqlParameterSource("job", WATERMARK), Long.class);
+        return seq == null ? 0 : seq;
+    }
+
+    @Override
+    public OptionalLong compact(LocalDateTime before, int batchSize) {
+        return deleteLocked(COMPACT_SQL, before, batchSize);
+    }
+
+    @Override
+    public OptionalLong truncate(LocalDateTime before, int batchSize) {
+        return deleteLocked(TRUNCATE_SQL, before, batchSize);
+    }
+
+    private OptionalLong deleteLocked(String sql, LocalDateTime before, int batchSize) {
+        List<Long> locked = jdbcTemplate.queryForList(
+                "SELECT position_id FROM job_watermarks WHERE name = :job FOR UPDATE SKIP LOCKED",
+                new MapSqlParameterSource("job", WATERMARK), Long.class);
+        if (locked.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        Long deleted = jdbcTemplate.queryForObject(sql, new MapSqlParameterSource()
+                .addValue("before", Timestamp.valueOf(before))
+                .addValue("batchSize", batchSize)
+                .addValue("job", WATERMARK), Long.class);
+        return OptionalLong.of(deleted == null ? 0 : deleted);
+    }
+}
@@ -0,0 +1,190 @@
+package org.synberg.pet.crudapp.repository;
+
+import org.synberg.pet.crudapp.dto.LoanDto;
+import org.synberg.pet.crudapp.entity.Loan;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface LoanRepositoryCustom {
+
+    /**
+     * Оформляет заем одним условным {@code INSERT}.
+     * <p>
+     * Вставка выполняется через {@code ON CONFLICT DO NOTHING} по частичному уникальному
+     * индексу активных займов, поэтому две конкурентные выдачи одной книги
+     * не могут обе завершиться успешно.
+     *
+     * @param userId ID пользователя
+     * @param bookId ID книги
+     * @param loanDate дата выдачи
+     * @return ID созданного займа или пустой результат, если книга уже выдана
+     */
+    Optional<Long> insertIfBookAvailable(long userId, long bookId, LocalDateTime loanDate);
+
+    /**
+     * Оформляет займы на несколько книг одним {@code INSERT ... SELECT}.
+     * <p>
+     * Существование книг проверяется соединением с {@code books}, занятость — через
+     * {@code ON CONFLICT DO NOTHING} по частичному уникальному индексу активных займов.
+     * Строки вставляются в порядке ID книг, поэтому конкурентные пакеты с пересекающимися
+     * книгами блокируют записи индекса в одном порядке и не взаимоблокируются.
+     *
+     * @param userId ID пользователя
+     * @param bookIds ID книг без повторов
+     * @param loanDate дата выдачи
+     * @return результат по каждой запрошенной книге
+     */
+    List<CheckoutRow> insertIfBooksAvailable(long userId, Collection<Long> bookIds, LocalDateTime loanDate);
+
+    /**
+     * Закрывает активные займы одним {@code UPDATE}.
+     *
+     * @param loanIds ID займов без повторов
+     * @param returnDate дата возврата
+     * @return результат по каждому запрошенному займу
+     */
+    List<ReturnRow> returnActive(Collection<Long> loanIds, LocalDateTime returnDate);
+
+    /**
+     * Находит заем по ID, соединяя в запросе только нужные связи.
+     * <p>
+     * Незагруженные пользователь и книга остаются прокси, у которых без обращения
+     * к базе данных доступен только ID.
+     *
+     * @param id ID займа
+     * @param fetchUser загрузить пользователя
+     * @param fetchBook загрузить книгу
+     * @return заем или пустой результат, если он не найден
+     */
+    Optional<Loan> findByIdFetching(long id, boolean fetchUser, boolean fetchBook);
+
+    /**
+     * Получает страницу займов с ID больше заданного, соединяя в запросе только нужные связи.
+     *
+     * @param afterId ID последнего займа предыдущей страницы
+     * @param limit максимальный размер страницы
+     * @param fetchUser загрузить пользователей
+     * @param fetchBook загрузить книги
+     * @param overdueOnly только займы из множества просроченных
+     * @return займы в порядке возрастания ID
+     */
+    List<Loan> findPageFetching(long afterId, int limit, boolean fetchUser, boolean fetchBook, boolean overdueOnly);
+
+    /**
+     * Читает все займы курсором базы данных, соединяя в запросе только нужные связи.
+     * <p>
+     * Поток нужно закрыть; сущности загружаются только для чтения.
+     *
+     * @param fetchUser загрузить пользователей
+     * @param fetchBook загрузить книги
+     * @return займы в порядке возрастания ID
+     */
+    Stream<Loan> streamAllFetching(boolean fetchUser, boolean fetchBook);
+
+    /**
+     * Получает страницу займов пользователя, включая архивные, от новых к старым.
+     * <p>
+     * Займы выбираются по индексам {@code (user_id, loan_date, id)} таблиц {@code loans}
+     * и {@code loans_history} условием {@code (loan_date, id) < (beforeDate, beforeId)};
+     * пользователь и книги соединяются только для строк страницы. Флаг {@code available}
+     * книги не заполняется.
+     *
+     * @param userId ID пользователя
+     * @param active включать невозвращённые займы
+     * @param returned включать возвращённые и архивные займы
+     * @param beforeDate дата выдачи последнего займа предыдущей страницы или {@code null} для первой страницы
+     * @param beforeId ID последнего займа предыдущей страницы
+     * @param limit максимальный размер страницы
+     * @return займы в порядке убывания {@code (loan_date, id)}
+     */
+    List<LoanDto> findUserLoans(long userId, boolean active, boolean returned,
+                                LocalDateTime beforeDate, long beforeId, int limit);
+
+    /**
+     * Получает страницу займов книги, включая архивные, от новых к старым.
+     * <p>
+     * Выборка устроена как в {@link #findUserLoans}, по индексам {@code (book_id, loan_date, id)}.
+     *
+     * @param bookId ID книги
+     * @param active включать невозвращённый займ
+     * @param returned включать возвращённые и архивные займы
+     * @param beforeDate дата выдачи последнего займа предыдущей страницы или {@code null} для первой страницы
+     * @param beforeId ID последнего займа предыдущей страницы
+     * @param limit максимальный размер страницы
+     * @return займы в порядке убывания {@code (loan_date, id)}
+     */
+    List<LoanDto> findBookLoans(long bookId, boolean active, boolean returned,
+                                LocalDateTime beforeDate, long beforeId, int limit);
+
+    /**
+     * Блокирует порцию возвращённых займов для переноса в архив.
+     * <p>
+     * Строки, заблокированные другой транзакцией, пропускаются ({@code SKIP LOCKED}),
+     * поэтому архивация на нескольких экземплярах приложения не конфликтует.
+     *
+     * @param returnedBefore граница даты возврата
+     * @param batchSize максимальный размер порции
+     * @return заблокированные займы
+     */
+    List<ArchiveCandidate> lockArchivable(LocalDateTime returnedBefore, int batchSize);
+
+    /**
+     * Создаёт секцию архива {@code loans_history} за месяц, если её ещё нет.
+     * <p>
+     * Создание секций сериализуется advisory-блокировкой до конца транзакции.
+     *
+     * @param month месяц даты выдачи
+     * @return {@code true}, если секция создана этим вызовом
+     */
+    boolean createHistoryPartition(YearMonth month);
+
+    /**
+     * Переносит займы из {@code loans} в {@code loans_history} одним запросом.
+     *
+     * @param loanIds ID займов без повторов
+     * @return перенесённые займы
+     */
+    List<ArchivedLoan> moveToHistory(Collection<Long> loanIds);
+
+    /**
+     * Займ, перенесённый в архив.
+     *
+     * @param loanId ID займа
+     * @param version версия займа
+     */
+    record ArchivedLoan(long loanId, long version) {}
+
+    /**
+     * Займ, отобранный для архивации.
+     *
+     * @param loanId ID займа
+     * @param loanDate дата выдачи, определяющая секцию архива
+     */
+    record ArchiveCandidate(long loanId, LocalDateTime loanDate) {}
+
+    /**
+     * Результат пакетной выдачи по одной книге.
+     *
+     * @param bookId ID книги
+     * @param bookExists существует ли книга
+     * @param loanId ID созданного займа или {@code null}, если займ не создан
+     */
+    record CheckoutRow(long bookId, boolean bookExists, Long loanId) {}
+
+    /**
+     * Результат пакетного возврата по одному займу.
+     *
+     * @param loanId ID займа
+     * @param bookId ID книги или {@code null}, если займ не найден
+     * @param returned был ли займ закрыт этим запросом
+     * @param version версия займа после возврата или {@code null}, если займ не закрыт этим запросом
+     * @param userId ID пользователя или {@code null}, если займ не закрыт этим запросом
+     * @param loanDate дата выдачи или {@code null}, если займ не закрыт этим запросом
+     */
+    record ReturnRow(long loanId, Long bookId, boolean returned, Long version, Long userId, LocalDateTime loanDate) {}
+}
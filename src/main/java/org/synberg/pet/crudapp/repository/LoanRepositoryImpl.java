@@ -0,0 +1,254 @@
+package org.synberg.pet.crudapp.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.synberg.pet.crudapp.dto.BookDto;
+import org.synberg.pet.crudapp.dto.LoanDto;
+import org.synberg.pet.crudapp.dto.UserDto;
+import org.synberg.pet.crudapp.entity.Loan;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+class LoanRepositoryImpl implements LoanRepositoryCustom {
+    private static final String CHECKOUT_SQL = """
+            INSERT INTO loans (user_id, book_id, loan_date)
+            VALUES (:userId, :bookId, :loanDate)
+            ON CONFLICT (book_id) WHERE return_date IS NULL DO NOTHING
+            RETURNING id
+            """;
+    private static final String BATCH_CHECKOUT_SQL = """
+            WITH requested AS (
+                SELECT unnest(CAST(:bookIds AS bigint[])) AS book_id
+            ), inserted AS (
+                INSERT INTO loans (user_id, book_id, loan_date)
+                SELECT :userId, b.id, :loanDate
+                FROM requested r JOIN books b ON b.id = r.book_id
+                ORDER BY b.id
+                ON CONFLICT (book_id) WHERE return_date IS NULL DO NOTHING
+                RETURNING id, book_id
+            )
+            SELECT r.book_id, b.id IS NOT NULL AS book_exists, i.id AS loan_id
+            FROM requested r
+            LEFT JOIN books b ON b.id = r.book_id
+            LEFT JOIN inserted i ON i.book_id = r.book_id
+            """;
+    private static final String BATCH_RETURN_SQL = """
+            WITH requested AS (
+                SELECT unnest(CAST(:loanIds AS bigint[])) AS id
+            ), updated AS (
+                UPDATE loans l SET return_date = :returnDate, version = l.version + 1
+                FROM requested r
+                WHERE l.id = r.id AND l.return_date IS NULL
+                RETURNING l.id, l.user_id, l.loan_date, l.version
+            )
+            SELECT r.id, l.book_id, u.id IS NOT NULL AS returned, u.version, u.user_id, u.loan_date
+            FROM requested r
+            LEFT JOIN loans l ON l.id = r.id
+            LEFT JOIN updated u ON u.id = r.id
+            """;
+    private static final String LOCK_ARCHIVABLE_SQL = """
+            SELECT id, loan_date
+            FROM loans
+            WHERE return_date IS NOT NULL AND return_date < :returnedBefore
+            ORDER BY return_date
+            LIMIT :batchSize
+            FOR UPDATE SKIP LOCKED
+            """;
+    private static final String MOVE_TO_HISTORY_SQL = """
+            WITH moved AS (
+                DELETE FROM loans l
+                USING (SELECT unnest(CAST(:loanIds AS bigint[])) AS id) r
+                WHERE l.id = r.id AND l.return_date IS NOT NULL
+                RETURNING l.id, l.user_id, l.book_id, l.loan_date, l.return_date, l.version
+            )
+            INSERT INTO loans_history (id, user_id, book_id, loan_date, return_date, version)
+            SELECT id, user_id, book_id, loan_date, return_date, version
+            FROM moved
+            RETURNING id, version
+            """;
+    private static final String OWNER_LOANS_SQL = """
+            WITH page AS (
+                SELECT * FROM (%s) l
+                ORDER BY loan_date DESC, id DESC
+                LIMIT :limit
+            )
+            SELECT p.id, p.loan_date, p.return_date, p.version,
+                   u.id AS user_id, u.name, u.email, u.version AS user_version,
+                   b.id AS book_id, b.title, b.author, b.version AS book_version
+            FROM page p
+            JOIN users u ON u.id = p.user_id
+            JOIN books b ON b.id = p.book_id
+            ORDER BY p.loan_date DESC, p.id DESC
+            """;
+    private static final String OWNER_LOANS_BRANCH_SQL = """
+            (SELECT id, user_id, book_id, loan_date, return_date, version
+             FROM %s
+             WHERE %s = :ownerId%s
+             ORDER BY loan_date DESC, id DESC
+             LIMIT :limit)
+            """;
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    @Override
+    public Optional<Loan> findByIdFetching(long id, boolean fetchUser, boolean fetchBook) {
+        return loanQuery(fetchUser, fetchBook, "where l.id = :id")
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst();
+    }
+
+    @Override
+    public List<Loan> findPageFetching(long afterId, int limit, boolean fetchUser, boolean fetchBook,
+                                       boolean overdueOnly) {
+        String where = overdueOnly
+                ? "where l.id > :id and l.returnDate is null"
+                  + " and exists (select 1 from OverdueLoan o where o.loanId = l.id)"
+                : "where l.id > :id";
+        return loanQuery(fetchUser, fetchBook, where + " order by l.id")
+                .setParameter("id", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<Loan> streamAllFetching(boolean fetchUser, boolean fetchBook) {
+        return loanQuery(fetchUser, fetchBook, "order by l.id")
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private TypedQuery<Loan> loanQuery(boolean fetchUser, boolean fetchBook, String tail) {
+        StringBuilder jpql = new StringBuilder("select l from Loan l");
+        if (fetchUser) {
+            jpql.append(" join fetch l.user");
+        }
+        if (fetchBook) {
+            jpql.append(" join fetch l.book");
+        }
+        jpql.append(' ').append(tail);
+        return entityManager.createQuery(jpql.toString(), Loan.class);
+    }
+
+    @Override
+    public Optional<Long> insertIfBookAvailable(long userId, long bookId, LocalDateTime loanDate) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("bookId", bookId)
+                .addValue("loanDate", Timestamp.valueOf(loanDate));
+        return jdbcTemplate.queryForList(CHECKOUT_SQL, params, Long.class).stream().findFirst();
+    }
+
+    @Override
+    public List<CheckoutRow> insertIfBooksAvailable(long userId, Collection<Long> bookIds, LocalDateTime loanDate) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("bookIds", bookIds.toArray(Long[]::new))
+                .addValue("loanDate", Timestamp.valueOf(loanDate));
+        return jdbcTemplate.query(BATCH_CHECKOUT_SQL, params, (rs, rowNum) -> new CheckoutRow(
+                rs.getLong("book_id"),
+                rs.getBoolean("book_exists"),
+                rs.getObject("loan_id", Long.class)));
+    }
+
+    @Override
+    public List<ReturnRow> returnActive(Collection<Long> loanIds, LocalDateTime returnDate) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("loanIds", loanIds.toArray(Long[]::new))
+                .addValue("returnDate", Timestamp.valueOf(returnDate));
+        return jdbcTemplate.query(BATCH_RETURN_SQL, params, (rs, rowNum) -> new ReturnRow(
+                rs.getLong("id"),
+                rs.getObject("book_id", Long.class),
+                rs.getBoolean("returned"),
+                rs.getObject("version", Long.class),
+                rs.getObject("user_id", Long.class),
+                rs.getObject("loan_date", LocalDateTime.class)));
+    }
+
+    @Override
+    public List<LoanDto> findUserLoans(long userId, boolean active, boolean returned,
+                                       LocalDateTime beforeDate, long beforeId, int limit) {
+        return findOwnerLoans("user_id", userId, active, returned, beforeDate, beforeId, limit);
+    }
+
+    @Override
+    public List<LoanDto> findBookLoans(long bookId, boolean active, boolean returned,
+                                       LocalDateTime beforeDate, long beforeId, int limit) {
+        return findOwnerLoans("book_id", bookId, active, returned, beforeDate, beforeId, limit);
+    }
+
+    private List<LoanDto> findOwnerLoans(String ownerColumn, long ownerId, boolean active, boolean returned,
+                                         LocalDateTime beforeDate, long beforeId, int limit) {
+        if (!active && !returned) {
+            return List.of();
+        }
+        String keyset = beforeDate == null ? "" : " AND (loan_date, id) < (:beforeDate, :beforeId)";
+        String status = !returned ? " AND return_date IS NULL" : !active ? " AND return_date IS NOT NULL" : "";
+        // В loans_history только возвращённые займы
+        String branches = OWNER_LOANS_BRANCH_SQL.formatted("loans", ownerColumn, status + keyset);
+        if (returned) {
+            branches += "UNION ALL\n" + OWNER_LOANS_BRANCH_SQL.formatted("loans_history", ownerColumn, keyset);
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ownerId", ownerId)
+                .addValue("beforeDate", beforeDate == null ? null : Timestamp.valueOf(beforeDate))
+                .addValue("beforeId", beforeId)
+                .addValue("limit", limit);
+        return jdbcTemplate.query(OWNER_LOANS_SQL.formatted(branches), params, (rs, rowNum) -> new LoanDto(
+                rs.getLong("id"),
+                new UserDto(rs.getLong("user_id"), rs.getString("name"), rs.getString("email"),
+                        rs.getLong("user_version")),
+                new BookDto(rs.getLong("book_id"), rs.getString("title"), rs.getString("author"), false,
+                        rs.getLong("book_version")),
+                rs.getObject("loan_date", LocalDateTime.class),
+                rs.getObject("return_date", LocalDateTime.class),
+                rs.getLong("version")));
+    }
+
+    @Override
+    public List<ArchiveCandidate> lockArchivable(LocalDateTime returnedBefore, int batchSize) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("returnedBefore", Timestamp.valueOf(returnedBefore))
+                .addValue("batchSize", batchSize);
+        return jdbcTemplate.query(LOCK_ARCHIVABLE_SQL, params, (rs, rowNum) -> new ArchiveCandidate(
+                rs.getLong("id"),
+                rs.getTimestamp("loan_date").toLocalDateTime()));
+    }
+
+    @Override
+    public boolean createHistoryPartition(YearMonth month) {
+        String partition = "loans_history_" + month.format(PARTITION_SUFFIX);
+        jdbcTemplate.getJdbcTemplate().queryForList("SELECT pg_advisory_xact_lock(hashtext('loans_history'))");
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(:partition) IS NOT NULL",
+                new MapSqlParameterSource("partition", partition), Boolean.class);
+        if (Boolean.TRUE.equals(exists)) {
+            return false;
+        }
+        jdbcTemplate.getJdbcTemplate().execute("CREATE TABLE " + partition
+                + " PARTITION OF loans_history FOR VALUES FROM ('" + month.atDay(1)
+                + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        return true;
+    }
+
+    @Override
+    public List<ArchivedLoan> moveToHistory(Collection<Long> loanIds) {
+        return jdbcTemplate.query(MOVE_TO_HISTORY_SQL,
+                new MapSqlParameterSource("loanIds", loanIds.toArray(Long[]::new)),
+                (rs, rowNum) -> new ArchivedLoan(rs.getLong("id"), rs.getLong("version")));
+    }
+}
@@ -0,0 +1,193 @@
+package org.synberg.pet.crudapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.synberg.pet.crudapp.dto.stats.BookLoanStatsDto;
+import org.synberg.pet.crudapp.dto.stats.DailyLoanStatsDto;
+import org.synberg.pet.crudapp.dto.stats.UserLoanStatsDto;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Предагрегированная статистика займов: {@code user_loan_stats}, {@code book_loan_stats}
+ * и {@code daily_loan_stats}.
+ * <p>
+ * Приращения добавляются одним {@code INSERT ... ON CONFLICT DO UPDATE} на таблицу;
+ * строки блокируются в порядке ключа, поэтому конкурентные транзакции не взаимоблокируются.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LoanStatsRepository {
+    private static final String ADD_USER_DELTAS_SQL = """
+            INSERT INTO user_loan_stats AS s (user_id, total_loans, active_loans, returned_loans, loan_seconds)
+            SELECT * FROM unnest(CAST(:userIds AS bigint[]), CAST(:totalLoans AS bigint[]),
+                                 CAST(:activeLoans AS bigint[]), CAST(:returnedLoans AS bigint[]),
+                                 CAST(:loanSeconds AS bigint[]))
+            ORDER BY 1
+            ON CONFLICT (user_id) DO UPDATE SET
+                total_loans = s.total_loans + EXCLUDED.total_loans,
+                active_loans = s.active_loans + EXCLUDED.active_loans,
+                returned_loans = s.returned_loans + EXCLUDED.returned_loans,
+                loan_seconds = s.loan_seconds + EXCLUDED.loan_seconds
+            """;
+    private static final String ADD_BOOK_DELTAS_SQL = """
+            INSERT INTO book_loan_stats AS s (book_id, loan_count)
+            SELECT * FROM unnest(CAST(:bookIds AS bigint[]), CAST(:loanCounts AS bigint[]))
+            ORDER BY 1
+            ON CONFLICT (book_id) DO UPDATE SET loan_count = s.loan_count + EXCLUDED.loan_count
+            """;
+    private static final String ADD_DAY_DELTAS_SQL = """
+            INSERT INTO daily_loan_stats AS s (day, checkouts, returns)
+            SELECT * FROM unnest(CAST(:days AS date[]), CAST(:checkouts AS bigint[]), CAST(:returns AS bigint[]))
+            ORDER BY 1
+            ON CONFLICT (day) DO UPDATE SET
+                checkouts = s.checkouts + EXCLUDED.checkouts,
+                returns = s.returns + EXCLUDED.returns
+            """;
+    private static final String TOP_BOOKS_SQL = """
+            SELECT s.book_id, b.title, b.author, s.loan_count
+            FROM book_loan_stats s
+            JOIN books b ON b.id = s.book_id
+            WHERE s.loan_count > 0
+            ORDER BY s.loan_count DESC, s.book_id
+            LIMIT :limit
+            """;
+    private static final String USER_STATS_SQL = """
+            SELECT u.id, s.active_loans, s.total_loans, s.returned_loans, s.loan_seconds
+            FROM users u
+            LEFT JOIN user_loan_stats s ON s.user_id = u.id
+            WHERE u.id = :userId
+            """;
+    private static final String DAILY_STATS_SQL = """
+            SELECT CAST(d AS date) AS day, coalesce(s.checkouts, 0) AS checkouts, coalesce(s.returns, 0) AS returns
+            FROM generate_series(CAST(:from AS date), CAST(:to AS date), interval '1 day') d
+            LEFT JOIN daily_loan_stats s ON s.day = CAST(d AS date)
+            ORDER BY 1
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Прибавляет приращения к статистике пользователей.
+     *
+     * @param deltas приращения, не более одного на пользователя
+     */
+    public void addUserDeltas(Collection<UserDelta> deltas) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userIds", deltas.stream().map(UserDelta::userId).toArray(Long[]::new))
+                .addValue("totalLoans", deltas.stream().map(UserDelta::totalLoans).toArray(Long[]::new))
+                .addValue("activeLoans", deltas.stream().map(UserDelta::activeLoans).toArray(Long[]::new))
+                .addValue("returnedLoans", deltas.stream().map(UserDelta::returnedLoans).toArray(Long[]::new))
+                .addValue("loanSeconds", deltas.stream().map(UserDelta::loanSeconds).toArray(Long[]::new));
+        jdbcTemplate.update(ADD_USER_DELTAS_SQL, params);
+    }
+
+    /**
+     * Прибавляет приращения к числу выдач книг.
+     *
+     * @param deltas приращения, не более одного на книгу
+     */
+    public void addBookDeltas(Collection<BookDelta> deltas) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("bookIds", deltas.stream().map(BookDelta::bookId).toArray(Long[]::new))
+                .addValue("loanCounts", deltas.stream().map(BookDelta::loanCount).toArray(Long[]::new));
+        jdbcTemplate.update(ADD_BOOK_DELTAS_SQL, params);
+    }
+
+    /**
+     * Прибавляет приращения к дневным счётчикам выдач и возвратов.
+     *
+     * @param deltas приращения, не более одного на день
+     */
+    public void addDayDeltas(Collection<DayDelta> deltas) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("days", deltas.stream().map(delta -> delta.day().toString()).toArray(String[]::new))
+                .addValue("checkouts", deltas.stream().map(DayDelta::checkouts).toArray(Long[]::new))
+                .addValue("returns", deltas.stream().map(DayDelta::returns).toArray(Long[]::new));
+        jdbcTemplate.update(ADD_DAY_DELTAS_SQL, params);
+    }
+
+    /**
+     * Находит самые выдаваемые книги.
+     *
+     * @param limit число книг
+     * @return книги по убыванию числа выдач
+     */
+    public List<BookLoanStatsDto> findTopBooks(int limit) {
+        return jdbcTemplate.query(TOP_BOOKS_SQL, new MapSqlParameterSource("limit", limit),
+                (rs, rowNum) -> new BookLoanStatsDto(
+                        rs.getLong("book_id"),
+                        rs.getString("title"),
+                        rs.getString("author"),
+                        rs.getLong("loan_count")));
+    }
+
+    /**
+     * Находит статистику пользователя.
+     *
+     * @param userId ID пользователя
+     * @return статистика (нулевая, если у пользователя не было займов) или пустой результат, если пользователь не найден
+     */
+    public Optional<UserLoanStatsDto> findUser(long userId) {
+        return jdbcTemplate.query(USER_STATS_SQL, new MapSqlParameterSource("userId", userId),
+                (rs, rowNum) -> {
+                    long returned = rs.getLong("returned_loans");
+                    return new UserLoanStatsDto(
+                            rs.getLong("id"),
+                            rs.getLong("active_loans"),
+                            rs.getLong("total_loans"),
+                            returned > 0 ? rs.getLong("loan_seconds") / returned : null);
+                }).stream().findFirst();
+    }
+
+    /**
+     * Находит дневные счётчики выдач и возвратов.
+     *
+     * @param from первый день
+     * @param to последний день включительно
+     * @return по строке на каждый день периода, дни без займов — с нулями
+     */
+    public List<DailyLoanStatsDto> findDaily(LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Date.valueOf(from))
+                .addValue("to", Date.valueOf(to));
+        return jdbcTemplate.query(DAILY_STATS_SQL, params, (rs, rowNum) -> new DailyLoanStatsDto(
+                rs.getDate("day").toLocalDate(),
+                rs.getLong("checkouts"),
+                rs.getLong("returns")));
+    }
+
+    /**
+     * Приращение статистики пользователя.
+     *
+     * @param userId ID пользователя
+     * @param totalLoans приращение числа займов
+     * @param activeLoans приращение числа невозвращённых займов
+     * @param returnedLoans приращение числа возвращённых займов
+     * @param loanSeconds приращение суммарной длительности возвращённых займов в секундах
+     */
+    public record UserDelta(long userId, long totalLoans, long activeLoans, long returnedLoans, long loanSeconds) {}
+
+    /**
+     * Приращение числа выдач книги.
+     *
+     * @param bookId ID книги
+     * @param loanCount приращение числа выдач
+     */
+    public record BookDelta(long bookId, long loanCount) {}
+
+    /**
+     * Приращение дневных счётчиков.
+     *
+     * @param day день
+     * @param checkouts приращение числа выдач
+     * @param returns приращение числа возвратов
+     */
+    public record DayDelta(LocalDate day, long checkouts, long returns) {}
+}
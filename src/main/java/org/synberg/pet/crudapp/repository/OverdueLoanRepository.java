@@ -0,0 +1,7 @@
+package org.synberg.pet.crudapp.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.synberg.pet.crudapp.entity.OverdueLoan;
+
+public interface OverdueLoanRepository extends JpaRepository<OverdueLoan, Long>, OverdueLoanRepositoryCustom {
+}
@@ -0,0 +1,64 @@
+package org.synberg.pet.crudapp.repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface OverdueLoanRepositoryCustom {
+
+    /**
+     * Блокирует позицию задачи до конца транзакции.
+     * <p>
+     * Используется {@code FOR UPDATE SKIP LOCKED}: если позицию уже держит другой экземпляр
+     * приложения, результат пустой и текущий запуск пропускается.
+     *
+     * @param job имя задачи
+     * @return текущая позиция или пустой результат, если она заблокирована
+     */
+    Optional<Watermark> lockWatermark(String job);
+
+    /**
+     * Сохраняет позицию задачи.
+     *
+     * @param job имя задачи
+     * @param watermark новая позиция
+     */
+    void saveWatermark(String job, Watermark watermark);
+
+    /**
+     * Добавляет в множество просроченных очередную порцию активных займов.
+     * <p>
+     * Займы читаются по частичному индексу {@code (loan_date, id) WHERE return_date IS NULL}
+     * строго после позиции и не позже {@code cutoff}, поэтому каждый запуск читает только новые строки.
+     *
+     * @param after позиция, после которой начинается порция
+     * @param cutoff займы, выданные раньше этого момента, просрочены
+     * @param period срок займа для вычисления даты возврата
+     * @param batchSize размер порции
+     * @return количество прочитанных займов и позиция последнего из них
+     */
+    ScanResult insertOverdueBatch(Watermark after, LocalDateTime cutoff, Duration period, int batchSize);
+
+    /**
+     * Удаляет из множества просроченных возвращённые и удалённые займы.
+     *
+     * @return количество удалённых записей
+     */
+    int deleteResolved();
+
+    /**
+     * Позиция инкрементального сканирования займов.
+     *
+     * @param loanDate дата выдачи последнего обработанного займа
+     * @param loanId ID последнего обработанного займа
+     */
+    record Watermark(LocalDateTime loanDate, long loanId) {}
+
+    /**
+     * Результат обработки порции.
+     *
+     * @param scanned количество прочитанных займов
+     * @param last позиция последнего прочитанного займа или {@code null}, если порция пуста
+     */
+    record ScanResult(int scanned, Watermark last) {}
+}
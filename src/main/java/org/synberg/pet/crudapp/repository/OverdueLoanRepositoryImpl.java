@@ -0,0 +1,85 @@
+package org.synberg.pet.crudapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+class OverdueLoanRepositoryImpl implements OverdueLoanRepositoryCustom {
+    private static final String INSERT_BATCH_SQL = """
+            WITH batch AS (
+                SELECT id, loan_date
+                FROM loans
+                WHERE return_date IS NULL
+                  AND loan_date < :cutoff
+                  AND (loan_date, id) > (:afterDate, :afterId)
+                ORDER BY loan_date, id
+                LIMIT :batchSize
+            ), inserted AS (
+                INSERT INTO overdue_loans (loan_id, due_date, detected_at)
+                SELECT id, loan_date + make_interval(secs => :periodSeconds), now()
+                FROM batch
+                ON CONFLICT (loan_id) DO NOTHING
+            )
+            SELECT id, loan_date, count(*) OVER () AS scanned
+            FROM batch
+            ORDER BY loan_date DESC, id DESC
+            LIMIT 1
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<Watermark> lockWatermark(String job) {
+        return jdbcTemplate.query("""
+                        SELECT position_date, position_id FROM job_watermarks
+                        WHERE name = :job
+                        FOR UPDATE SKIP LOCKED
+                        """,
+                new MapSqlParameterSource("job", job),
+                (rs, rowNum) -> new Watermark(rs.getTimestamp("position_date").toLocalDateTime(),
+                        rs.getLong("position_id"))).stream().findFirst();
+    }
+
+    @Override
+    public void saveWatermark(String job, Watermark watermark) {
+        jdbcTemplate.update("""
+                        UPDATE job_watermarks SET position_date = :loanDate, position_id = :loanId
+                        WHERE name = :job
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("job", job)
+                        .addValue("loanDate", Timestamp.valueOf(watermark.loanDate()))
+                        .addValue("loanId", watermark.loanId()));
+    }
+
+    @Override
+    public ScanResult insertOverdueBatch(Watermark after, LocalDateTime cutoff, Duration period, int batchSize) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cutoff", Timestamp.valueOf(cutoff))
+                .addValue("afterDate", Timestamp.valueOf(after.loanDate()))
+                .addValue("afterId", after.loanId())
+                .addValue("batchSize", batchSize)
+                .addValue("periodSeconds", (double) period.toSeconds());
+        List<ScanResult> rows = jdbcTemplate.query(INSERT_BATCH_SQL, params, (rs, rowNum) -> new ScanResult(
+                rs.getInt("scanned"),
+                new Watermark(rs.getTimestamp("loan_date").toLocalDateTime(), rs.getLong("id"))));
+        return rows.isEmpty() ? new ScanResult(0, null) : rows.getFirst();
+    }
+
+    @Override
+    public int deleteResolved() {
+        return jdbcTemplate.update("""
+                DELETE FROM overdue_loans o
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM loans l WHERE l.id = o.loan_id AND l.return_date IS NULL
+                )
+                """, new MapSqlParameterSource());
+    }
+}
@@ -0,0 +1,45 @@
+package org.synberg.pet.crudapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.synberg.pet.crudapp.entity.SequenceIds;
+
+import java.util.List;
+
+/**
+ * Выделяет идентификаторы для вставок в обход Hibernate.
+ * <p>
+ * Использует ту же схему, что и pooled-оптимизатор: значение {@code nextval}
+ * является верхней границей блока из {@link SequenceIds#ALLOCATION_SIZE} идентификаторов,
+ * поэтому идентификаторы не пересекаются с выделенными Hibernate.
+ */
+@Component
+@RequiredArgsConstructor
+class SequenceIdAllocator {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Выделяет {@code count} идентификаторов из последовательности.
+     *
+     * @param sequence имя последовательности
+     * @param count количество идентификаторов
+     * @return массив уникальных идентификаторов
+     */
+    long[] allocate(String sequence, int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            int blocks = (count - filled + SequenceIds.ALLOCATION_SIZE - 1) / SequenceIds.ALLOCATION_SIZE;
+            List<Long> highValues = jdbcTemplate.queryForList(
+                    "SELECT nextval(?::regclass) FROM generate_series(1, ?)", Long.class, sequence, blocks);
+            for (long high : highValues) {
+                // Первое значение новой последовательности (1) даёт неполный блок
+                for (long id = Math.max(1, high - SequenceIds.ALLOCATION_SIZE + 1); id <= high && filled < count; id++) {
+                    ids[filled++] = id;
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -1,11 +1,24 @@
 package org.synberg.pet.crudapp.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.synberg.pet.crudapp.entity.User;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<User> streamAllByOrderByIdAsc();
 }
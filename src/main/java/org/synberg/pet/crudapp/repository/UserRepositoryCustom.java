@@ -0,0 +1,16 @@
+package org.synberg.pet.crudapp.repository;
+
+import org.synberg.pet.crudapp.dto.create.UserCreateDto;
+
+import java.util.List;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Вставляет пользователей одним JDBC-батчем, пропуская уже занятые email.
+     *
+     * @param users пользователи для вставки
+     * @return ID созданного пользователя для каждой строки или 0, если это дубликат
+     */
+    long[] insertIgnoringDuplicates(List<UserCreateDto> users);
+}
@@ -0,0 +1,45 @@
+package org.synberg.pet.crudapp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.synberg.pet.crudapp.dto.create.UserCreateDto;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+@RequiredArgsConstructor
+class UserRepositoryImpl implements UserRepositoryCustom {
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
+
+    @Override
+    @Transactional
+    public long[] insertIgnoringDuplicates(List<UserCreateDto> users) {
+        long[] ids = idAllocator.allocate("users_id_seq", users.size());
+        int[] counts = jdbcTemplate.batchUpdate(
+                "INSERT INTO users (id, name, email) VALUES (?, ?, ?) ON CONFLICT (email) DO NOTHING",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        UserCreateDto user = users.get(i);
+                        ps.setLong(1, ids[i]);
+                        ps.setString(2, user.name());
+                        ps.setString(3, user.email());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return users.size();
+                    }
+                });
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                ids[i] = 0;
+            }
+        }
+        return ids;
+    }
+}
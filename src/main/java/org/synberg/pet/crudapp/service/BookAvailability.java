@@ -0,0 +1,130 @@
+package org.synberg.pet.crudapp.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс доступности книг в памяти.
+ * <p>
+ * Хранит битовую карту идентификаторов выданных книг: идентификаторы выдаются
+ * последовательностью и плотные, поэтому миллион книг занимает около 125 КБ.
+ * Карта строится из таблицы {@code loans} при старте и обновляется после фиксации
+ * транзакций, изменивших займы, так что проверка доступности не обращается к базе данных.
+ * <p>
+ * Индекс отражает изменения, сделанные через этот экземпляр приложения, и служит только
+ * для чтения: по нему заполняется флаг {@code available} в ответах. Решение о выдаче
+ * принимает база данных по уникальному индексу активных займов {@code ux_loans_active_book}.
+ * Книги с идентификаторами вне диапазона {@code int} в карту не попадают и проверяются запросом к базе.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookAvailability implements SmartInitializingSingleton {
+    private final JdbcTemplate jdbcTemplate;
+    private final BitSet loaned = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Строит индекс по активным займам после инициализации всех бинов, в том числе миграций Liquibase.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Перестраивает индекс по активным займам из базы данных.
+     */
+    public void rebuild() {
+        BitSet active = new BitSet();
+        jdbcTemplate.query("SELECT book_id FROM loans WHERE return_date IS NULL",
+                (RowCallbackHandler) rs -> {
+                    long bookId = rs.getLong(1);
+                    if (indexable(bookId)) {
+                        active.set((int) bookId);
+                    }
+                });
+        lock.writeLock().lock();
+        try {
+            loaned.clear();
+            loaned.or(active);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Проверяет, свободна ли книга.
+     *
+     * @param bookId идентификатор книги
+     * @return {@code true}, если у книги нет активного займа
+     */
+    public boolean isAvailable(long bookId) {
+        if (!indexable(bookId)) {
+            return Boolean.FALSE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM loans WHERE book_id = ? AND return_date IS NULL)",
+                    Boolean.class, bookId));
+        }
+        lock.readLock().lock();
+        try {
+            return !loaned.get((int) bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Отмечает книгу выданной после фиксации текущей транзакции.
+     *
+     * @param bookId идентификатор книги
+     */
+    public void markLoaned(long bookId) {
+        afterCommit(() -> set(bookId, true));
+    }
+
+    /**
+     * Отмечает книгу свободной после фиксации текущей транзакции.
+     *
+     * @param bookId идентификатор книги
+     */
+    public void markReturned(long bookId) {
+        afterCommit(() -> set(bookId, false));
+    }
+
+    private void set(long bookId, boolean value) {
+        if (!indexable(bookId)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            loaned.set((int) bookId, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static boolean indexable(long bookId) {
+        return bookId >= 0 && bookId <= Integer.MAX_VALUE;
+    }
+}
@@ -1,16 +1,33 @@
 package org.synberg.pet.crudapp.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.synberg.pet.crudapp.config.CacheConfig;
+import org.synberg.pet.crudapp.dto.bulk.BulkResultDto;
+import org.synberg.pet.crudapp.dto.change.ChangeEntity;
+import org.synberg.pet.crudapp.dto.change.ChangeOperation;
 import org.synberg.pet.crudapp.dto.create.BookCreateDto;
 import org.synberg.pet.crudapp.dto.BookDto;
+import org.synberg.pet.crudapp.dto.PageDto;
 import org.synberg.pet.crudapp.dto.update.BookUpdateDto;
 import org.synberg.pet.crudapp.entity.Book;
 import org.synberg.pet.crudapp.exception.AlreadyExistsException;
+import org.synberg.pet.crudapp.exception.BadRequestException;
 import org.synberg.pet.crudapp.exception.NotFoundException;
+import org.synberg.pet.crudapp.exception.PreconditionFailedException;
 import org.synberg.pet.crudapp.repository.BookRepository;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Сервис для управления книгами в библиотеке.
@@ -22,29 +39,127 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class BookService {
+    private static final String TITLE_AUTHOR_CONSTRAINT = "uk_books_title_author";
+
     private final BookRepository bookRepository;
+    private final CachedBookLookup cachedBookLookup;
+    private final BookAvailability bookAvailability;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final ChangeLog changeLog;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Находит книгу по её идентификатору.
+     * <p>
+     * Промах кэша читает с основной базы (см. {@link CachedBookLookup}).
      *
      * @param id идентификатор книги
      * @return DTO книги {@link BookDto}
      * @throws NotFoundException если книга с указанным id не найдена
      */
+    @Transactional
     public BookDto find(Long id) {
-        return bookRepository.findById(id).map(book ->
-                new BookDto(book.getId(), book.getTitle(), book.getAuthor())).orElseThrow(() ->
-                new NotFoundException("Book not found"));
+        return withAvailability(cachedBookLookup.find(id));
+    }
+
+    /**
+     * Находит книгу по названию и автору.
+     * <p>
+     * Результат кэшируется: выдача популярных книг не обращается к базе данных за поиском книги.
+     * Флаг доступности берётся из {@link BookAvailability} при каждом вызове,
+     * промах кэша читает с основной базы (см. {@link CachedBookLookup}).
+     *
+     * @param title название книги
+     * @param author автор книги
+     * @return DTO книги {@link BookDto}
+     * @throws NotFoundException если книга не найдена
+     */
+    @Transactional
+    public BookDto findByTitleAndAuthor(String title, String author) {
+        return withAvailability(cachedBookLookup.findByTitleAndAuthor(title, author));
     }
 
     /**
-     * Получает список всех книг в библиотеке.
+     * Получает страницу книг в порядке возрастания идентификатора.
      *
-     * @return список DTO книг
+     * @param cursor курсор предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы
+     * @return страница DTO книг с курсором следующей страницы
      */
-    public List<BookDto> findAll() {
-        return bookRepository.findAll().stream().map(book ->
-                new BookDto(book.getId(), book.getTitle(), book.getAuthor())).toList();
+    @Transactional(readOnly = true)
+    public PageDto<BookDto> findPage(String cursor, int limit) {
+        List<Book> books = bookRepository.findByIdGreaterThanOrderByIdAsc(
+                Pagination.decodeCursor(cursor), Pagination.fetchLimit(limit));
+        return Pagination.page(books, limit, Book::getId, this::toDto);
+    }
+
+    /**
+     * Получает страницу свободных книг в порядке возрастания идентификатора.
+     * <p>
+     * Выданные книги отфильтровываются в базе данных одним запросом, поэтому страница
+     * стоит одного обращения к базе независимо от того, сколько книг выдано.
+     *
+     * @param cursor курсор предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы
+     * @return страница DTO свободных книг с курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public PageDto<BookDto> findAvailablePage(String cursor, int limit) {
+        List<Book> books = bookRepository.findAvailable(
+                Pagination.decodeCursor(cursor), Pagination.fetchLimit(limit).max());
+        return Pagination.page(books, limit, Book::getId, book -> toDto(book, true));
+    }
+
+    /**
+     * Ищет книги по словам из названия и автора, сначала наиболее релевантные.
+     *
+     * @param query поисковый запрос
+     * @param cursor курсор предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы
+     * @return страница DTO книг с курсором следующей страницы
+     * @throws BadRequestException если запрос пустой
+     */
+    @Transactional(readOnly = true)
+    public PageDto<BookDto> search(String query, String cursor, int limit) {
+        long offset = Pagination.decodeCursor(cursor);
+        List<Book> books = bookRepository.search(requireQuery(query), offset, Pagination.fetchLimit(limit).max());
+        return Pagination.offsetPage(books, offset, limit, this::toDto);
+    }
+
+    /**
+     * Подбирает книги для автодополнения по началу названия с допуском опечаток.
+     *
+     * @param prefix введённое начало названия
+     * @param cursor курсор предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы
+     * @return страница DTO книг с курсором следующей страницы
+     * @throws BadRequestException если префикс пустой
+     */
+    @Transactional(readOnly = true)
+    public PageDto<BookDto> autocomplete(String prefix, String cursor, int limit) {
+        long offset = Pagination.decodeCursor(cursor);
+        List<Book> books = bookRepository.autocomplete(requireQuery(prefix), offset, Pagination.fetchLimit(limit).max());
+        return Pagination.offsetPage(books, offset, limit, this::toDto);
+    }
+
+    /**
+     * Выгружает все книги в порядке возрастания идентификатора.
+     * <p>
+     * Строки читаются курсором базы данных порциями по размеру fetch size,
+     * каждая книга отсоединяется от контекста персистентности сразу после передачи
+     * в {@code consumer}, поэтому расход памяти не зависит от размера таблицы.
+     *
+     * @param consumer получатель DTO книг
+     */
+    @Transactional(readOnly = true)
+    public void export(Consumer<BookDto> consumer) {
+        try (Stream<Book> books = bookRepository.streamAllByOrderByIdAsc()) {
+            books.forEach(book -> {
+                consumer.accept(toDto(book));
+                entityManager.detach(book);
+            });
+        }
     }
 
     /**
@@ -52,7 +167,9 @@ public class BookService {
      *
      * @param bookCreateDto DTO с данными для создания книги
      * @return созданная книга в виде {@link BookDto}
+     * @throws AlreadyExistsException если книга с таким названием и автором уже есть
      */
+    @Transactional
     public BookDto create(BookCreateDto bookCreateDto) {
         if (bookRepository.existsByTitleAndAuthor(bookCreateDto.title(), bookCreateDto.author())) {
             throw new AlreadyExistsException("Book already exists");
@@ -60,8 +177,25 @@ public class BookService {
         Book book = new Book();
         book.setTitle(bookCreateDto.title());
         book.setAuthor(bookCreateDto.author());
-        bookRepository.save(book);
-        return new BookDto(book.getId(), book.getTitle(), book.getAuthor());
+        // Конкурентную вставку той же книги проверка выше не видит, её отклоняет уникальное ограничение
+        saveAndFlush(book);
+        changeLog.record(ChangeEntity.BOOK, book.getId(), ChangeOperation.CREATE, book.getVersion());
+        return toDto(book);
+    }
+
+    /**
+     * Массово создаёт книги.
+     * <p>
+     * Строки валидируются по одной и вставляются порциями по {@link BulkImporter#CHUNK_SIZE}
+     * одним JDBC-батчем в отдельной транзакции; уже существующие пары название+автор
+     * пропускаются через {@code ON CONFLICT DO NOTHING} и попадают в сводку как дубликаты.
+     *
+     * @param books входные строки
+     * @return сводка импорта
+     */
+    public BulkResultDto bulkCreate(Stream<BookCreateDto> books) {
+        return BulkImporter.importRows(books, validator, chunk -> transactionTemplate.execute(status ->
+                changeLog.recordCreated(ChangeEntity.BOOK, bookRepository.insertIgnoringDuplicates(chunk))));
     }
 
     /**
@@ -69,15 +203,27 @@ public class BookService {
      *
      * @param id            идентификатор книги
      * @param bookUpdateDto DTO с новыми данными книги
+     * @param expectedVersion версия из заголовка {@code If-Match} или {@code null} для безусловного обновления
      * @return обновлённая книга в виде {@link BookDto}
      * @throws NotFoundException если книга с указанным id не найдена
+     * @throws PreconditionFailedException если текущая версия книги отличается от ожидаемой
+     * @throws AlreadyExistsException если книга с новыми названием и автором уже есть
      */
-    public BookDto update(Long id, BookUpdateDto bookUpdateDto) {
+    @Caching(
+            put = @CachePut(cacheNames = CacheConfig.BOOKS, key = "#id"),
+            evict = @CacheEvict(cacheNames = CacheConfig.BOOKS_BY_TITLE_AND_AUTHOR, allEntries = true)
+    )
+    @Transactional
+    public BookDto update(Long id, BookUpdateDto bookUpdateDto, Long expectedVersion) {
         Book book = bookRepository.findById(id).orElseThrow(() -> new NotFoundException("Book not found"));
+        if (expectedVersion != null && !expectedVersion.equals(book.getVersion())) {
+            throw new PreconditionFailedException("Book was modified");
+        }
         book.setTitle(bookUpdateDto.title());
         book.setAuthor(bookUpdateDto.author());
-        Book updatedBook = bookRepository.save(book);
-        return new BookDto(updatedBook.getId(), updatedBook.getTitle(), updatedBook.getAuthor());
+        Book updatedBook = saveAndFlush(book);
+        changeLog.record(ChangeEntity.BOOK, id, ChangeOperation.UPDATE, updatedBook.getVersion());
+        return toDto(updatedBook);
     }
 
     /**
@@ -86,10 +232,52 @@ public class BookService {
      * @param id идентификатор книги
      * @throws NotFoundException если книга с указанным id не найдена
      */
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.BOOKS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.BOOKS_BY_TITLE_AND_AUTHOR, allEntries = true)
+    })
+    @Transactional
     public void delete(Long id) {
         if (!bookRepository.existsById(id)) {
             throw new NotFoundException("Book not found");
         }
         bookRepository.deleteById(id);
+        changeLog.record(ChangeEntity.BOOK, id, ChangeOperation.DELETE, null);
+    }
+
+    private Book saveAndFlush(Book book) {
+        try {
+            return bookRepository.saveAndFlush(book);
+        } catch (DataIntegrityViolationException e) {
+            if (TITLE_AUTHOR_CONSTRAINT.equals(Constraints.name(e))) {
+                throw new AlreadyExistsException("Book already exists");
+            }
+            throw e;
+        }
+    }
+
+    private static String requireQuery(String query) {
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("Query is required");
+        }
+        return query.strip();
+    }
+
+    /**
+     * Накладывает текущую доступность книги на DTO, например полученный из кэша.
+     *
+     * @param book DTO книги
+     * @return DTO с актуальным флагом {@code available}
+     */
+    public BookDto withAvailability(BookDto book) {
+        return book.withAvailable(bookAvailability.isAvailable(book.id()));
+    }
+
+    BookDto toDto(Book book) {
+        return toDto(book, bookAvailability.isAvailable(book.getId()));
+    }
+
+    static BookDto toDto(Book book, boolean available) {
+        return new BookDto(book.getId(), book.getTitle(), book.getAuthor(), available, book.getVersion());
     }
 }
@@ -0,0 +1,108 @@
+package org.synberg.pet.crudapp.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.synberg.pet.crudapp.dto.bulk.BulkResultDto;
+import org.synberg.pet.crudapp.dto.bulk.BulkRowResultDto;
+import org.synberg.pet.crudapp.dto.bulk.BulkRowStatus;
+import org.synberg.pet.crudapp.exception.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Общая логика массового импорта: валидация строк, нарезка на порции
+ * и подсчёт результатов по ID вставленных строк.
+ * <p>
+ * Строка, которую не удалось прочитать, попадает в сводку как невалидная, и чтение
+ * прекращается: порции до неё уже зафиксированы, после неё ничего не импортируется.
+ */
+final class BulkImporter<T> {
+    static final int CHUNK_SIZE = 1000;
+    static final int MAX_REJECTED_ROWS = 1000;
+
+    private final Validator validator;
+    private final Function<List<T>, long[]> inserter;
+    private final List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+    private final List<Long> chunkRows = new ArrayList<>(CHUNK_SIZE);
+    private final List<BulkRowResultDto> rejected = new ArrayList<>();
+    private long created;
+    private long duplicates;
+    private long invalid;
+
+    private BulkImporter(Validator validator, Function<List<T>, long[]> inserter) {
+        this.validator = validator;
+        this.inserter = inserter;
+    }
+
+    /**
+     * Импортирует строки порциями по {@link #CHUNK_SIZE}.
+     *
+     * @param rows входные строки; читаются последовательно, целиком в памяти не держатся
+     * @param validator валидатор DTO
+     * @param inserter вставка порции, возвращающая для каждого элемента ID созданной строки или 0 для дубликата
+     * @return сводка импорта
+     */
+    static <T> BulkResultDto importRows(Stream<T> rows, Validator validator, Function<List<T>, long[]> inserter) {
+        BulkImporter<T> importer = new BulkImporter<>(validator, inserter);
+        long rowNumber = 0;
+        Iterator<T> iterator = rows.iterator();
+        while (true) {
+            T row;
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                row = iterator.next();
+            } catch (BadRequestException e) {
+                importer.invalid++;
+                importer.reject(rowNumber + 1, BulkRowStatus.INVALID, e.getMessage());
+                break;
+            }
+            importer.add(++rowNumber, row);
+        }
+        importer.flush();
+        return new BulkResultDto(importer.created, importer.duplicates, importer.invalid, importer.rejected);
+    }
+
+    private void add(long rowNumber, T row) {
+        Set<ConstraintViolation<T>> violations = validator.validate(row);
+        if (!violations.isEmpty()) {
+            invalid++;
+            reject(rowNumber, BulkRowStatus.INVALID, violations.iterator().next().getMessage());
+            return;
+        }
+        chunk.add(row);
+        chunkRows.add(rowNumber);
+        if (chunk.size() == CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        long[] ids = inserter.apply(chunk);
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] > 0) {
+                created++;
+            } else {
+                duplicates++;
+                reject(chunkRows.get(i), BulkRowStatus.DUPLICATE, "Already exists");
+            }
+        }
+        chunk.clear();
+        chunkRows.clear();
+    }
+
+    private void reject(long rowNumber, BulkRowStatus status, String message) {
+        if (rejected.size() < MAX_REJECTED_ROWS) {
+            rejected.add(new BulkRowResultDto(rowNumber, status, message));
+        }
+    }
+}
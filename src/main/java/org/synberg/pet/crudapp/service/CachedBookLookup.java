@@ -0,0 +1,41 @@
+package org.synberg.pet.crudapp.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.synberg.pet.crudapp.config.CacheConfig;
+import org.synberg.pet.crudapp.dto.BookDto;
+import org.synberg.pet.crudapp.exception.NotFoundException;
+import org.synberg.pet.crudapp.repository.BookRepository;
+
+/**
+ * Кэшируемые поиски книг для {@link BookService}.
+ * <p>
+ * Вынесены в отдельный бин, чтобы {@link BookService} накладывал флаг доступности
+ * из {@link BookAvailability} поверх кэшированного DTO: иначе из кэша возвращалась бы
+ * доступность на момент первого чтения.
+ * <p>
+ * Промах кэша читает книгу в изменяющей транзакции, то есть с основной базы: кэш общий
+ * для всех клиентов, и строка с отстающей реплики оставалась бы в нём до истечения TTL
+ * уже после того, как обновление книги обновило кэш.
+ */
+@Component
+@RequiredArgsConstructor
+class CachedBookLookup {
+    private final BookRepository bookRepository;
+
+    @Cacheable(CacheConfig.BOOKS)
+    @Transactional
+    public BookDto find(Long id) {
+        return bookRepository.findById(id).map(book -> BookService.toDto(book, true)).orElseThrow(() ->
+                new NotFoundException("Book not found"));
+    }
+
+    @Cacheable(CacheConfig.BOOKS_BY_TITLE_AND_AUTHOR)
+    @Transactional
+    public BookDto findByTitleAndAuthor(String title, String author) {
+        return bookRepository.findByTitleAndAuthor(title, author).map(book -> BookService.toDto(book, true)).orElseThrow(() ->
+                new NotFoundException("Book not found"));
+    }
+}
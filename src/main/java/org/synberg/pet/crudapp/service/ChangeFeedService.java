@@ -0,0 +1,144 @@
+package org.synberg.pet.crudapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.synberg.pet.crudapp.dto.change.ChangeDto;
+import org.synberg.pet.crudapp.dto.change.ChangeFeedDto;
+import org.synberg.pet.crudapp.entity.ChangeLogEntry;
+import org.synberg.pet.crudapp.exception.BadRequestException;
+import org.synberg.pet.crudapp.exception.GoneException;
+import org.synberg.pet.crudapp.repository.ChangeLogRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение журнала изменений с длинным опросом.
+ * <p>
+ * Если новых записей нет, запрос не занимает поток: ожидающие запросы проверяются
+ * раз в {@code app.changes.poll-interval} одним запросом максимального {@code seq}
+ * и завершаются, как только для них появились записи, или по истечении ожидания.
+ * Проверка идёт по базе данных, поэтому видны изменения, сделанные любым экземпляром приложения.
+ * <p>
+ * Перед проверкой зафиксированные записи журнала получают номера {@code seq} порциями по
+ * {@code app.changes.publish-batch-size}; публикацию в каждый момент выполняет один экземпляр.
+ * Запись появляется в ленте не позже чем через {@code app.changes.poll-interval} после фиксации.
+ */
+@Service
+public class ChangeFeedService {
+    private final ChangeLogRepository changeLogRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration maxWait;
+    private final int publishBatchSize;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    public ChangeFeedService(ChangeLogRepository changeLogRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.changes.max-wait}") Duration maxWait,
+                             @Value("${app.changes.publish-batch-size}") int publishBatchSize) {
+        this.changeLogRepository = changeLogRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxWait = maxWait;
+        this.publishBatchSize = publishBatchSize;
+    }
+
+    /**
+     * Возвращает текущий конец журнала.
+     * <p>
+     * Клиент запоминает {@code next}, выполняет полную выгрузку и дальше читает изменения после него.
+     *
+     * @return пустая порция с последним {@code seq} журнала
+     */
+    public ChangeFeedDto head() {
+        return new ChangeFeedDto(List.of(), changeLogRepository.findMaxSeq());
+    }
+
+    /**
+     * Получает записи журнала после {@code since}.
+     *
+     * @param since последний полученный {@code seq}; {@code 0} для чтения с начала
+     * @param limit максимальное количество записей
+     * @param wait сколько ждать новых записей, если их нет; ограничено {@code app.changes.max-wait}
+     * @return порция журнала; пустая, если за время ожидания записей не появилось
+     * @throws BadRequestException если {@code since} отрицательный или размер вне диапазона {@code 1..MAX_LIMIT}
+     * @throws GoneException если записи после {@code since} уже удалены по сроку хранения или компактизацией
+     */
+    public CompletableFuture<ChangeFeedDto> poll(long since, int limit, Duration wait) {
+        if (since < 0) {
+            throw new BadRequestException("since must not be negative");
+        }
+        if (limit < 1 || limit > Pagination.MAX_LIMIT) {
+            throw new BadRequestException("Limit must be between 1 and " + Pagination.MAX_LIMIT);
+        }
+        if (since < changeLogRepository.findTruncatedSeq()) {
+            throw new GoneException("Changes after " + since + " have expired, full resync required");
+        }
+        ChangeFeedDto feed = read(since, limit);
+        if (!feed.changes().isEmpty() || wait.isZero() || wait.isNegative()) {
+            return CompletableFuture.completedFuture(feed);
+        }
+        Duration timeout = wait.compareTo(maxWait) > 0 ? maxWait : wait;
+        CompletableFuture<ChangeFeedDto> result = new CompletableFuture<ChangeFeedDto>()
+                .completeOnTimeout(feed, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        Waiter waiter = new Waiter(since, limit, result);
+        waiters.add(waiter);
+        result.whenComplete((r, e) -> waiters.remove(waiter));
+        return result;
+    }
+
+    /**
+     * Публикует зафиксированные записи журнала и завершает ожидающие запросы,
+     * для которых в журнале появились записи.
+     */
+    @Scheduled(fixedDelayString = "${app.changes.poll-interval}")
+    public void wakeUpWaiters() {
+        publish();
+        if (waiters.isEmpty()) {
+            return;
+        }
+        long head = changeLogRepository.findMaxSeq();
+        for (Waiter waiter : waiters) {
+            if (waiter.since() < head && !waiter.result().isDone()) {
+                try {
+                    waiter.result().complete(read(waiter.since(), waiter.limit()));
+                } catch (RuntimeException e) {
+                    waiter.result().completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void publish() {
+        while (true) {
+            OptionalInt published = transactionTemplate.execute(status -> changeLogRepository.publish(publishBatchSize));
+            if (published == null || published.isEmpty() || published.getAsInt() < publishBatchSize) {
+                return;
+            }
+        }
+    }
+
+    private ChangeFeedDto read(long since, int limit) {
+        List<ChangeDto> changes = changeLogRepository.findBySeqGreaterThanOrderBySeqAsc(
+                        since, Limit.of(limit))
+                .stream()
+                .map(ChangeFeedService::toDto)
+                .toList();
+        return new ChangeFeedDto(changes, changes.isEmpty() ? since : changes.getLast().seq());
+    }
+
+    private static ChangeDto toDto(ChangeLogEntry entry) {
+        return new ChangeDto(entry.getSeq(), entry.getEntity(), entry.getEntityId(),
+                entry.getOperation(), entry.getVersion(), entry.getChangedAt());
+    }
+
+    private record Waiter(long since, int limit, CompletableFuture<ChangeFeedDto> result) {}
+}
@@ -0,0 +1,83 @@
+package org.synberg.pet.crudapp.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.synberg.pet.crudapp.dto.change.ChangeEntity;
+import org.synberg.pet.crudapp.dto.change.ChangeOperation;
+import org.synberg.pet.crudapp.repository.ChangeLogRepository;
+import org.synberg.pet.crudapp.repository.ChangeLogRepositoryCustom.Change;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запись изменений сущностей в журнал {@code change_log} в транзакции изменения.
+ * <p>
+ * Изменения накапливаются до фиксации и записываются одним запросом перед ней, после
+ * сброса контекста персистентности. Запись не блокирует журнал: номер в ленте изменений
+ * записи получают после фиксации ({@link ChangeFeedService}).
+ */
+@Component
+@RequiredArgsConstructor
+public class ChangeLog {
+    private final ChangeLogRepository changeLogRepository;
+    private final EntityManager entityManager;
+
+    /**
+     * Добавляет изменение в журнал текущей транзакции.
+     *
+     * @param entity тип сущности
+     * @param entityId ID сущности
+     * @param operation операция
+     * @param version версия после изменения или {@code null} для удаления
+     * @throws IllegalStateException если нет активной транзакции
+     */
+    public void record(ChangeEntity entity, long entityId, ChangeOperation operation, Long version) {
+        pending().add(new Change(entity, entityId, operation, version));
+    }
+
+    /**
+     * Добавляет в журнал текущей транзакции создание строк массового импорта.
+     *
+     * @param entity тип сущности
+     * @param ids ID созданных строк; {@code 0} для пропущенных дубликатов
+     * @return те же {@code ids}
+     */
+    public long[] recordCreated(ChangeEntity entity, long[] ids) {
+        for (long id : ids) {
+            if (id > 0) {
+                record(entity, id, ChangeOperation.CREATE, 0L);
+            }
+        }
+        return ids;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Change> pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Change log requires an active transaction");
+        }
+        List<Change> changes = (List<Change>) TransactionSynchronizationManager.getResource(this);
+        if (changes != null) {
+            return changes;
+        }
+        List<Change> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                entityManager.flush();
+                changeLogRepository.append(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ChangeLog.this);
+            }
+        });
+        return created;
+    }
+}
@@ -0,0 +1,78 @@
+package org.synberg.pet.crudapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.synberg.pet.crudapp.repository.ChangeLogRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.OptionalLong;
+
+/**
+ * Фоновая очистка журнала изменений.
+ * <p>
+ * Записи старше {@code app.changes.compact-after} компактизируются: из них остаётся только
+ * последняя запись каждой сущности. Записи старше {@code app.changes.retention} удаляются.
+ * Обе границы считаются по {@code seq} (префикс ленты до первой записи не старше срока),
+ * и обе сдвигают границу усечения до последней удалённой записи: клиент с курсором ниже неё
+ * пропустил бы удалённые записи, поэтому получает {@code 410 Gone} и выполняет полную выгрузку.
+ * Обе операции идут порциями по {@code app.changes.cleanup-batch-size}, каждая порция — отдельная транзакция.
+ */
+@Slf4j
+@Component
+public class ChangeLogRetention {
+    private final ChangeLogRepository changeLogRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration compactAfter;
+    private final Duration retention;
+    private final int batchSize;
+
+    public ChangeLogRetention(ChangeLogRepository changeLogRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.changes.compact-after}") Duration compactAfter,
+                              @Value("${app.changes.retention}") Duration retention,
+                              @Value("${app.changes.cleanup-batch-size}") int batchSize) {
+        this.changeLogRepository = changeLogRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.compactAfter = compactAfter;
+        this.retention = retention;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.changes.cleanup-interval}",
+            initialDelayString = "${app.changes.cleanup-interval}")
+    public void cleanUp() {
+        long expired = 0;
+        while (true) {
+            LocalDateTime before = LocalDateTime.now().minus(retention);
+            OptionalLong deleted = transactionTemplate.execute(status -> changeLogRepository.truncate(before, batchSize));
+            if (deleted == null || deleted.isEmpty()) {
+                log.debug("Change log cleanup is running on another instance");
+                return;
+            }
+            expired += deleted.getAsLong();
+            if (deleted.getAsLong() < batchSize) {
+                break;
+            }
+        }
+        long compacted = 0;
+        while (true) {
+            LocalDateTime before = LocalDateTime.now().minus(compactAfter);
+            OptionalLong deleted = transactionTemplate.execute(status -> changeLogRepository.compact(before, batchSize));
+            if (deleted == null || deleted.isEmpty()) {
+                break;
+            }
+            compacted += deleted.getAsLong();
+            if (deleted.getAsLong() < batchSize) {
+                break;
+            }
+        }
+        if (expired > 0 || compacted > 0) {
+            log.info("Change log cleanup: {} expired, {} compacted", expired, compacted);
+        }
+    }
+}
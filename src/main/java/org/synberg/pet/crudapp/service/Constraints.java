@@ -0,0 +1,27 @@
+package org.synberg.pet.crudapp.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * Разбор нарушений ограничений базы данных.
+ */
+final class Constraints {
+    private Constraints() {
+    }
+
+    /**
+     * Находит имя нарушенного ограничения.
+     *
+     * @param e исключение Spring
+     * @return имя ограничения или {@code null}, если драйвер его не сообщил
+     */
+    static String name(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getConstraintName();
+            }
+        }
+        return null;
+    }
+}
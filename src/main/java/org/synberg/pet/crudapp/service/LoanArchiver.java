@@ -0,0 +1,89 @@
+package org.synberg.pet.crudapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.synberg.pet.crudapp.dto.change.ChangeEntity;
+import org.synberg.pet.crudapp.dto.change.ChangeOperation;
+import org.synberg.pet.crudapp.repository.LoanRepository;
+import org.synberg.pet.crudapp.repository.LoanRepositoryCustom.ArchiveCandidate;
+import org.synberg.pet.crudapp.repository.LoanRepositoryCustom.ArchivedLoan;
+
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Фоновая задача, переносящая давно возвращённые займы в архив {@code loans_history}.
+ * <p>
+ * Займы, возвращённые раньше срока {@code app.loans.archive.after}, переносятся порциями
+ * по {@code app.loans.archive.batch-size}, каждая порция — отдельная транзакция. Перед
+ * переносом создаются недостающие месячные секции архива, поэтому строки не попадают
+ * в секцию по умолчанию. В {@code loans} остаются активные и недавно возвращённые займы,
+ * и её размер не растёт вместе с историей.
+ * <p>
+ * Каждый перенесённый займ записывается в журнал изменений операцией
+ * {@link ChangeOperation#ARCHIVE} в той же транзакции, что и перенос.
+ */
+@Slf4j
+@Component
+public class LoanArchiver {
+    private final LoanRepository loanRepository;
+    private final ChangeLog changeLog;
+    private final TransactionTemplate transactionTemplate;
+    private final Period retention;
+    private final int batchSize;
+
+    public LoanArchiver(LoanRepository loanRepository,
+                        ChangeLog changeLog,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${app.loans.archive.after}") Period retention,
+                        @Value("${app.loans.archive.batch-size}") int batchSize) {
+        this.loanRepository = loanRepository;
+        this.changeLog = changeLog;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.loans.archive.interval}",
+            initialDelayString = "${app.loans.archive.interval}")
+    public void archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        long archived = 0;
+        while (true) {
+            Integer moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            if (moved == null || moved == 0) {
+                break;
+            }
+            archived += moved;
+            if (moved < batchSize) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            log.info("Loan archive: {} loans moved to history", archived);
+        }
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<ArchiveCandidate> batch = loanRepository.lockArchivable(cutoff, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batch.stream()
+                .map(candidate -> YearMonth.from(candidate.loanDate()))
+                .distinct()
+                .filter(loanRepository::createHistoryPartition)
+                .forEach(month -> log.info("Created loans_history partition for {}", month));
+        List<ArchivedLoan> moved = loanRepository.moveToHistory(
+                batch.stream().map(ArchiveCandidate::loanId).toList());
+        moved.forEach(loan ->
+                changeLog.record(ChangeEntity.LOAN, loan.loanId(), ChangeOperation.ARCHIVE, loan.version()));
+        return moved.size();
+    }
+}
@@ -1,21 +1,37 @@
 package org.synberg.pet.crudapp.service;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.synberg.pet.crudapp.dto.*;
+import org.synberg.pet.crudapp.dto.batch.LoanBatchItemDto;
+import org.synberg.pet.crudapp.dto.batch.LoanBatchResultDto;
+import org.synberg.pet.crudapp.dto.batch.LoanBatchStatus;
+import org.synberg.pet.crudapp.dto.change.ChangeEntity;
+import org.synberg.pet.crudapp.dto.change.ChangeOperation;
+import org.synberg.pet.crudapp.dto.create.LoanBatchCreateDto;
 import org.synberg.pet.crudapp.dto.create.LoanCreateDto;
+import org.synberg.pet.crudapp.dto.update.LoanBatchReturnDto;
 import org.synberg.pet.crudapp.dto.update.LoanUpdateDto;
 import org.synberg.pet.crudapp.entity.Book;
 import org.synberg.pet.crudapp.entity.Loan;
 import org.synberg.pet.crudapp.entity.User;
 import org.synberg.pet.crudapp.exception.AlreadyExistsException;
+import org.synberg.pet.crudapp.exception.BadRequestException;
 import org.synberg.pet.crudapp.exception.NotFoundException;
+import org.synberg.pet.crudapp.exception.PreconditionFailedException;
 import org.synberg.pet.crudapp.repository.BookRepository;
 import org.synberg.pet.crudapp.repository.LoanRepository;
+import org.synberg.pet.crudapp.repository.LoanRepositoryCustom;
 import org.synberg.pet.crudapp.repository.UserRepository;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Сервис для управления операциями по выдаче книг (заемами).
@@ -27,93 +43,251 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class LoanService {
+    private static final String ACTIVE_BOOK_CONSTRAINT = "ux_loans_active_book";
+    private static final String USER_FK_CONSTRAINT = "fk_loans_users";
+    private static final String BOOK_FK_CONSTRAINT = "fk_loans_books";
+
     private final LoanRepository loanRepository;
     private final UserRepository userRepository;
     private final BookRepository bookRepository;
-
+    private final UserService userService;
+    private final BookService bookService;
+    private final BookAvailability bookAvailability;
+    private final OverdueLoanScanner overdueLoanScanner;
+    private final ChangeLog changeLog;
+    private final LoanStats loanStats;
+    private final EntityManager entityManager;
 
     /**
      * Находит заем по его идентификатору.
+     * <p>
+     * Пользователь и книга соединяются в запросе, только если представление требует их полей.
      *
      * @param id идентификатор займа
-     * @return заем в виде {@link LoanDto}
+     * @param view набор полей и режим вложения
+     * @return заем в виде, заданном {@link LoanView#render}
      * @throws NotFoundException если заем с указанным id не найден
      */
-    public LoanDto find(Long id) {
-        return loanRepository.findById(id).map(loan ->
-                new LoanDto(
-                        loan.getId(),
-                        new UserDto(
-                                loan.getUser().getId(),
-                                loan.getUser().getName(),
-                                loan.getUser().getEmail()
-                        ),
-                        new BookDto(
-                                loan.getBook().getId(),
-                                loan.getBook().getTitle(),
-                                loan.getBook().getAuthor()
-                        ),
-                        loan.getLoanDate(),
-                        loan.getReturnDate())).orElseThrow(() ->
-                new NotFoundException("Loan not found"));
+    @Transactional(readOnly = true)
+    public Object find(Long id, LoanView view) {
+        return loanRepository.findByIdFetching(id, view.fetchUser(), view.fetchBook())
+                .map(loan -> render(loan, view))
+                .orElseThrow(() -> new NotFoundException("Loan not found"));
+    }
+
+    /**
+     * Получает страницу займов в порядке возрастания идентификатора.
+     *
+     * @param cursor курсор предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы
+     * @param view набор полей и режим вложения
+     * @return страница займов с курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public PageDto<Object> findPage(String cursor, int limit, LoanView view) {
+        List<Loan> loans = loanRepository.findPageFetching(Pagination.decodeCursor(cursor),
+                Pagination.fetchLimit(limit).max(), view.fetchUser(), view.fetchBook(), false);
+        return Pagination.page(loans, limit, Loan::getId, loan -> render(loan, view));
+    }
+
+    /**
+     * Получает страницу просроченных займов в порядке возрастания идентификатора.
+     * <p>
+     * Читается множество, которое поддерживает {@link OverdueLoanScanner}; займы,
+     * возвращённые после последнего запуска задачи, в ответ не попадают.
+     *
+     * @param cursor курсор предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы
+     * @param view набор полей и режим вложения
+     * @return страница займов с курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public PageDto<Object> findOverduePage(String cursor, int limit, LoanView view) {
+        List<Loan> loans = loanRepository.findPageFetching(Pagination.decodeCursor(cursor),
+                Pagination.fetchLimit(limit).max(), view.fetchUser(), view.fetchBook(), true);
+        return Pagination.page(loans, limit, Loan::getId, loan -> render(loan, view));
+    }
+
+    /**
+     * Получает страницу займов пользователя от новых к старым, включая архивные.
+     *
+     * @param userId идентификатор пользователя
+     * @param status {@code all}, {@code active} или {@code returned}
+     * @param cursor курсор предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы
+     * @return страница DTO займов с курсором следующей страницы
+     * @throws NotFoundException если пользователь не найден
+     * @throws BadRequestException если статус или курсор некорректны
+     */
+    @Transactional(readOnly = true)
+    public PageDto<LoanDto> findUserLoans(Long userId, String status, String cursor, int limit) {
+        Pagination.DateCursor after = Pagination.decodeDateCursor(cursor);
+        int fetchLimit = Pagination.fetchLimit(limit).max();
+        List<LoanDto> loans = loanRepository.findUserLoans(userId, includesActive(status), includesReturned(status),
+                after == null ? null : after.date(), after == null ? 0L : after.id(), fetchLimit);
+        if (loans.isEmpty() && after == null && !userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found");
+        }
+        return Pagination.datePage(loans, limit, LoanDto::loanDate, LoanDto::id, this::withAvailability);
+    }
+
+    /**
+     * Получает страницу займов книги от новых к старым, включая архивные.
+     *
+     * @param bookId идентификатор книги
+     * @param status {@code all}, {@code active} или {@code returned}
+     * @param cursor курсор предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы
+     * @return страница DTO займов с курсором следующей страницы
+     * @throws NotFoundException если книга не найдена
+     * @throws BadRequestException если статус или курсор некорректны
+     */
+    @Transactional(readOnly = true)
+    public PageDto<LoanDto> findBookLoans(Long bookId, String status, String cursor, int limit) {
+        Pagination.DateCursor after = Pagination.decodeDateCursor(cursor);
+        int fetchLimit = Pagination.fetchLimit(limit).max();
+        List<LoanDto> loans = loanRepository.findBookLoans(bookId, includesActive(status), includesReturned(status),
+                after == null ? null : after.date(), after == null ? 0L : after.id(), fetchLimit);
+        if (loans.isEmpty() && after == null && !bookRepository.existsById(bookId)) {
+            throw new NotFoundException("Book not found");
+        }
+        return Pagination.datePage(loans, limit, LoanDto::loanDate, LoanDto::id, this::withAvailability);
     }
 
     /**
-     * Получает список всех займов.
+     * Выгружает все займы.
+     * <p>
+     * Займы читаются одним запросом через курсор базы данных, пользователи и книги
+     * соединяются, только если представление требует их полей. Заем и загруженные связи
+     * отсоединяются от контекста персистентности сразу после передачи в {@code consumer},
+     * поэтому расход памяти не зависит от количества займов.
      *
-     * @return список DTO займов
+     * @param consumer получатель займов
+     * @param view набор полей и режим вложения
      */
-    public List<LoanDto> findAll() {
-        return loanRepository.findAll().stream().map(loan ->
-                new LoanDto(loan.getId(),
-                        new UserDto(
-                                loan.getUser().getId(),
-                                loan.getUser().getName(),
-                                loan.getUser().getEmail()
-                        ),
-                        new BookDto(
-                                loan.getBook().getId(),
-                                loan.getBook().getTitle(),
-                                loan.getBook().getAuthor()
-                        ),
-                        loan.getLoanDate(), loan.getReturnDate())).toList();
+    @Transactional(readOnly = true)
+    public void export(Consumer<Object> consumer, LoanView view) {
+        try (Stream<Loan> loans = loanRepository.streamAllFetching(view.fetchUser(), view.fetchBook())) {
+            loans.forEach(loan -> {
+                consumer.accept(render(loan, view));
+                entityManager.detach(loan);
+                if (view.fetchUser()) {
+                    entityManager.detach(loan.getUser());
+                }
+                if (view.fetchBook()) {
+                    entityManager.detach(loan.getBook());
+                }
+            });
+        }
     }
 
     /**
      * Создаёт новый заем.
      * <p>
-     * Проверяет, существует ли пользователь и книга, а также что книга не выдана другому пользователю.
+     * Пользователь и книга берутся из кэша естественных ключей {@link UserService#findByEmail}
+     * и {@link BookService#findByTitleAndAuthor}, а проверка, что книга не выдана, и вставка
+     * выполняются одним условным {@code INSERT}: при попадании в кэш выдача стоит одного
+     * обращения к базе данных. Занятость книги решает только база данных: уникальный индекс
+     * активных займов исключает двойную выдачу при конкурентных запросах и с других экземпляров
+     * приложения, а {@link BookAvailability} лишь обновляется после фиксации.
      *
      * @param dto DTO с информацией для создания займа
      * @return созданный заем в виде {@link LoanDto}
      * @throws NotFoundException если пользователь или книга не найдены
-     * @throws RuntimeException если книга уже выдана другому пользователю
+     * @throws AlreadyExistsException если книга уже выдана другому пользователю
      */
+    @Transactional
     public LoanDto create(LoanCreateDto dto) {
-        User user = userRepository.findByEmail(dto.userEmail())
-                .orElseThrow(() -> new NotFoundException("User not found"));
+        UserDto user = userService.findByEmail(dto.userEmail());
+        BookDto book = bookService.findByTitleAndAuthor(dto.bookTitle(), dto.bookAuthor());
+        LocalDateTime loanDate = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
 
-        Book book = bookRepository.findByTitleAndAuthor(dto.bookTitle(), dto.bookAuthor())
-                .orElseThrow(() -> new NotFoundException("Book not found"));
-
-        if (loanRepository.existsByBookAndReturnDateIsNull(book)) {
-            throw new AlreadyExistsException("Book is already loaned");
+        Long id;
+        try {
+            id = loanRepository.insertIfBookAvailable(user.id(), book.id(), loanDate)
+                    .orElseThrow(() -> new AlreadyExistsException("Book is already loaned"));
+        } catch (DataIntegrityViolationException e) {
+            // Пользователь или книга удалены после попадания в кэш
+            throw new NotFoundException("User or book not found");
         }
+        bookAvailability.markLoaned(book.id());
+        loanStats.added(user.id(), book.id(), loanDate, null);
+        changeLog.record(ChangeEntity.LOAN, id, ChangeOperation.CREATE, 0L);
+        return new LoanDto(id, user, book.withAvailable(false), loanDate, null, 0L);
+    }
 
-        Loan loan = new Loan();
-        loan.setUser(user);
-        loan.setBook(book);
-        loan.setLoanDate(LocalDateTime.now());
+    /**
+     * Выдаёт пользователю несколько книг в одной транзакции.
+     * <p>
+     * Пользователь берётся из кэша, а книги оформляются одним {@code INSERT ... SELECT}:
+     * проверка существования книг, их занятости и вставка займов занимают одно обращение к базе данных.
+     * Занятость решает уникальный индекс активных займов, а не {@link BookAvailability}.
+     * Книги передаются в порядке возрастания ID, чтобы конкурентные пакеты не взаимоблокировались.
+     *
+     * @param dto email пользователя и ID книг
+     * @return результат по каждой книге в порядке запроса
+     * @throws NotFoundException если пользователь не найден
+     */
+    @Transactional
+    public LoanBatchResultDto createBatch(LoanBatchCreateDto dto) {
+        UserDto user = userService.findByEmail(dto.userEmail());
+        LocalDateTime loanDate = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
 
-        Loan saved = loanRepository.save(loan);
+        Map<Long, LoanBatchItemDto> items = new LinkedHashMap<>();
+        dto.bookIds().forEach(bookId -> items.put(bookId, null));
+        List<Long> candidates = items.keySet().stream().sorted().toList();
+        List<LoanRepositoryCustom.CheckoutRow> rows;
+        try {
+            rows = loanRepository.insertIfBooksAvailable(user.id(), candidates, loanDate);
+        } catch (DataIntegrityViolationException e) {
+            // Пользователь или книга удалены во время выдачи
+            throw new NotFoundException("User or book not found");
+        }
+        for (LoanRepositoryCustom.CheckoutRow row : rows) {
+            LoanBatchStatus status = !row.bookExists() ? LoanBatchStatus.NOT_FOUND
+                    : row.loanId() == null ? LoanBatchStatus.ALREADY_LOANED
+                    : LoanBatchStatus.LOANED;
+            if (status == LoanBatchStatus.LOANED) {
+                bookAvailability.markLoaned(row.bookId());
+                loanStats.added(user.id(), row.bookId(), loanDate, null);
+                changeLog.record(ChangeEntity.LOAN, row.loanId(), ChangeOperation.CREATE, 0L);
+            }
+            items.put(row.bookId(), new LoanBatchItemDto(row.bookId(), row.loanId(), status));
+        }
+        return summarize(items.values(), LoanBatchStatus.LOANED);
+    }
 
-        return new LoanDto(
-                saved.getId(),
-                new UserDto(saved.getUser().getId(), saved.getUser().getName(), saved.getUser().getEmail()),
-                new BookDto(saved.getBook().getId(), saved.getBook().getTitle(), saved.getBook().getAuthor()),
-                saved.getLoanDate(),
-                saved.getReturnDate()
-        );
+    /**
+     * Возвращает несколько займов в одной транзакции одним {@code UPDATE}.
+     * <p>
+     * Уже закрытые займы не изменяются и попадают в результат со статусом
+     * {@link LoanBatchStatus#ALREADY_RETURNED}.
+     *
+     * @param dto ID займов
+     * @return результат по каждому займу в порядке запроса
+     */
+    @Transactional
+    public LoanBatchResultDto returnBatch(LoanBatchReturnDto dto) {
+        Map<Long, LoanRepositoryCustom.ReturnRow> rows = new HashMap<>();
+        List<Long> loanIds = List.copyOf(new LinkedHashSet<>(dto.loanIds()));
+        LocalDateTime returnDate = LocalDateTime.now();
+        for (LoanRepositoryCustom.ReturnRow row : loanRepository.returnActive(loanIds, returnDate)) {
+            rows.put(row.loanId(), row);
+            if (row.returned()) {
+                bookAvailability.markReturned(row.bookId());
+                loanStats.removed(row.userId(), row.bookId(), row.loanDate(), null);
+                loanStats.added(row.userId(), row.bookId(), row.loanDate(), returnDate);
+                changeLog.record(ChangeEntity.LOAN, row.loanId(), ChangeOperation.UPDATE, row.version());
+            }
+        }
+        List<LoanBatchItemDto> items = loanIds.stream().map(loanId -> {
+            LoanRepositoryCustom.ReturnRow row = rows.get(loanId);
+            LoanBatchStatus status = row.bookId() == null ? LoanBatchStatus.NOT_FOUND
+                    : row.returned() ? LoanBatchStatus.RETURNED
+                    : LoanBatchStatus.ALREADY_RETURNED;
+            return new LoanBatchItemDto(row.bookId(), loanId, status);
+        }).toList();
+        return summarize(items, LoanBatchStatus.RETURNED);
     }
 
     /**
@@ -123,12 +297,22 @@ public class LoanService {
      *
      * @param id идентификатор займа
      * @param loanUpdateDto DTO с новыми данными займа
+     * @param expectedVersion версия из заголовка {@code If-Match} или {@code null} для безусловного обновления
      * @return обновленный заем в виде {@link LoanDto}
      * @throws NotFoundException если заем, пользователь или книга не найдены
+     * @throws AlreadyExistsException если заем делает активным второй заем той же книги
+     * @throws PreconditionFailedException если текущая версия займа отличается от ожидаемой
      */
-    public LoanDto update(Long id, LoanUpdateDto loanUpdateDto) {
+    @Transactional
+    public LoanDto update(Long id, LoanUpdateDto loanUpdateDto, Long expectedVersion) {
         Loan loan = loanRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Loan not found"));
+        if (expectedVersion != null && !expectedVersion.equals(loan.getVersion())) {
+            throw new PreconditionFailedException("Loan was modified");
+        }
+        long previousBookId = loan.getBook().getId();
+        boolean wasActive = loan.getReturnDate() == null;
+        loanStats.removed(loan.getUser().getId(), previousBookId, loan.getLoanDate(), loan.getReturnDate());
 
         User user = userRepository.findById(loanUpdateDto.userId())
                 .orElseThrow(() -> new NotFoundException("User not found"));
@@ -141,23 +325,32 @@ public class LoanService {
         loan.setLoanDate(loanUpdateDto.loanDate());
         loan.setReturnDate(loanUpdateDto.returnDate());
 
-        Loan savedLoan = loanRepository.save(loan);
-
-        return new LoanDto(
-                savedLoan.getId(),
-                new UserDto(
-                        savedLoan.getUser().getId(),
-                        savedLoan.getUser().getName(),
-                        savedLoan.getUser().getEmail()
-                ),
-                new BookDto(
-                        savedLoan.getBook().getId(),
-                        savedLoan.getBook().getTitle(),
-                        savedLoan.getBook().getAuthor()
-                ),
-                savedLoan.getLoanDate(),
-                savedLoan.getReturnDate()
-        );
+        Loan updated;
+        try {
+            updated = loanRepository.saveAndFlush(loan);
+        } catch (DataIntegrityViolationException e) {
+            String constraint = Constraints.name(e);
+            if (ACTIVE_BOOK_CONSTRAINT.equals(constraint)) {
+                throw new AlreadyExistsException("Book is already loaned");
+            }
+            if (USER_FK_CONSTRAINT.equals(constraint) || BOOK_FK_CONSTRAINT.equals(constraint)) {
+                // Пользователь или книга удалены после чтения
+                throw new NotFoundException("User or book not found");
+            }
+            throw e;
+        }
+        if (wasActive) {
+            bookAvailability.markReturned(previousBookId);
+        }
+        if (updated.getReturnDate() == null) {
+            bookAvailability.markLoaned(book.getId());
+        }
+        overdueLoanScanner.track(updated);
+        loanStats.added(user.getId(), book.getId(), updated.getLoanDate(), updated.getReturnDate());
+        changeLog.record(ChangeEntity.LOAN, id, ChangeOperation.UPDATE, updated.getVersion());
+        boolean bookAvailable = updated.getReturnDate() != null
+                && (wasActive && previousBookId == book.getId() || bookAvailability.isAvailable(book.getId()));
+        return toDto(updated, bookAvailable);
     }
 
     /**
@@ -169,25 +362,20 @@ public class LoanService {
      * @return обновленный заем в виде {@link LoanDto}
      * @throws NotFoundException если заем не найден
      */
+    @Transactional
     public LoanDto returnLoan(Long id) {
-        Loan loan = loanRepository.findById(id).orElseThrow(() -> new NotFoundException("Loan not found"));
+        Loan loan = loanRepository.findWithUserAndBookById(id)
+                .orElseThrow(() -> new NotFoundException("Loan not found"));
+        boolean wasActive = loan.getReturnDate() == null;
+        if (wasActive) {
+            bookAvailability.markReturned(loan.getBook().getId());
+        }
+        loanStats.removed(loan.getUser().getId(), loan.getBook().getId(), loan.getLoanDate(), loan.getReturnDate());
         loan.setReturnDate(LocalDateTime.now());
-        Loan savedLoan = loanRepository.save(loan);
-        return new LoanDto(
-                savedLoan.getId(),
-                new UserDto(
-                        savedLoan.getUser().getId(),
-                        savedLoan.getUser().getName(),
-                        savedLoan.getUser().getEmail()
-                ),
-                new BookDto(
-                        savedLoan.getBook().getId(),
-                        savedLoan.getBook().getTitle(),
-                        savedLoan.getBook().getAuthor()
-                ),
-                savedLoan.getLoanDate(),
-                savedLoan.getReturnDate()
-        );
+        Loan returned = loanRepository.saveAndFlush(loan);
+        loanStats.added(loan.getUser().getId(), loan.getBook().getId(), returned.getLoanDate(), returned.getReturnDate());
+        changeLog.record(ChangeEntity.LOAN, id, ChangeOperation.UPDATE, returned.getVersion());
+        return toDto(returned, wasActive || bookAvailability.isAvailable(loan.getBook().getId()));
     }
 
     /**
@@ -196,10 +384,61 @@ public class LoanService {
      * @param id идентификатор займа
      * @throws NotFoundException если заем не найден
      */
+    @Transactional
     public void delete(Long id) {
-        if (!loanRepository.existsById(id)) {
-            throw new NotFoundException("Loan not found");
+        Loan loan = loanRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Loan not found"));
+        if (loan.getReturnDate() == null) {
+            bookAvailability.markReturned(loan.getBook().getId());
+        }
+        loanStats.removed(loan.getUser().getId(), loan.getBook().getId(), loan.getLoanDate(), loan.getReturnDate());
+        loanRepository.delete(loan);
+        changeLog.record(ChangeEntity.LOAN, id, ChangeOperation.DELETE, null);
+    }
+
+    private static LoanBatchResultDto summarize(Collection<LoanBatchItemDto> items, LoanBatchStatus success) {
+        int succeeded = (int) items.stream().filter(item -> item.status() == success).count();
+        return new LoanBatchResultDto(succeeded, items.size() - succeeded, List.copyOf(items));
+    }
+
+    private static boolean includesActive(String status) {
+        return !parseStatus(status).equals("returned");
+    }
+
+    private static boolean includesReturned(String status) {
+        return !parseStatus(status).equals("active");
+    }
+
+    private static String parseStatus(String status) {
+        if (status == null || status.isBlank()) {
+            return "all";
+        }
+        if (!status.equals("all") && !status.equals("active") && !status.equals("returned")) {
+            throw new BadRequestException("status must be 'all', 'active' or 'returned'");
         }
-        loanRepository.deleteById(id);
+        return status;
+    }
+
+    private LoanDto withAvailability(LoanDto loan) {
+        return new LoanDto(loan.id(), loan.user(),
+                loan.book().withAvailable(bookAvailability.isAvailable(loan.book().id())),
+                loan.loanDate(), loan.returnDate(), loan.version());
+    }
+
+    private Object render(Loan loan, LoanView view) {
+        return view.render(loan, bookAvailability.isAvailable(loan.getBook().getId()));
+    }
+
+    static LoanDto toDto(Loan loan, boolean bookAvailable) {
+        User user = loan.getUser();
+        Book book = loan.getBook();
+        return new LoanDto(
+                loan.getId(),
+                new UserDto(user.getId(), user.getName(), user.getEmail(), user.getVersion()),
+                BookService.toDto(book, bookAvailable),
+                loan.getLoanDate(),
+                loan.getReturnDate(),
+                loan.getVersion()
+        );
     }
 }
@@ -0,0 +1,127 @@
+package org.synberg.pet.crudapp.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.synberg.pet.crudapp.repository.LoanStatsRepository;
+import org.synberg.pet.crudapp.repository.LoanStatsRepository.BookDelta;
+import org.synberg.pet.crudapp.repository.LoanStatsRepository.DayDelta;
+import org.synberg.pet.crudapp.repository.LoanStatsRepository.UserDelta;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Обновление предагрегированной статистики займов в транзакции изменения займа.
+ * <p>
+ * Изменение займа записывается как снятие вклада его прежнего состояния и добавление вклада
+ * нового. Приращения складываются до фиксации и записываются перед ней тремя запросами,
+ * поэтому строки статистики блокируются только на время фиксации.
+ */
+@Component
+@RequiredArgsConstructor
+public class LoanStats {
+    private final LoanStatsRepository loanStatsRepository;
+
+    /**
+     * Добавляет в статистику вклад займа.
+     *
+     * @param userId ID пользователя
+     * @param bookId ID книги
+     * @param loanDate дата выдачи
+     * @param returnDate дата возврата или {@code null} для активного займа
+     * @throws IllegalStateException если нет активной транзакции
+     */
+    public void added(long userId, long bookId, LocalDateTime loanDate, LocalDateTime returnDate) {
+        pending().add(userId, bookId, loanDate, returnDate, 1);
+    }
+
+    /**
+     * Снимает из статистики вклад займа в прежнем состоянии.
+     *
+     * @param userId ID пользователя
+     * @param bookId ID книги
+     * @param loanDate дата выдачи
+     * @param returnDate дата возврата или {@code null} для активного займа
+     * @throws IllegalStateException если нет активной транзакции
+     */
+    public void removed(long userId, long bookId, LocalDateTime loanDate, LocalDateTime returnDate) {
+        pending().add(userId, bookId, loanDate, returnDate, -1);
+    }
+
+    private Deltas pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Loan stats require an active transaction");
+        }
+        Deltas deltas = (Deltas) TransactionSynchronizationManager.getResource(this);
+        if (deltas != null) {
+            return deltas;
+        }
+        Deltas created = new Deltas();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                created.flush(loanStatsRepository);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(LoanStats.this);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Приращения одной транзакции; ключи упорядочены, чтобы строки блокировались в одном порядке.
+     */
+    private static final class Deltas {
+        private final Map<Long, long[]> users = new TreeMap<>();
+        private final Map<Long, Long> books = new TreeMap<>();
+        private final Map<LocalDate, long[]> days = new TreeMap<>();
+
+        void add(long userId, long bookId, LocalDateTime loanDate, LocalDateTime returnDate, int sign) {
+            boolean returned = returnDate != null;
+            long[] user = users.computeIfAbsent(userId, id -> new long[4]);
+            user[0] += sign;
+            user[1] += returned ? 0 : sign;
+            user[2] += returned ? sign : 0;
+            user[3] += returned ? sign * Duration.between(loanDate, returnDate).toSeconds() : 0;
+            books.merge(bookId, (long) sign, Long::sum);
+            days.computeIfAbsent(loanDate.toLocalDate(), day -> new long[2])[0] += sign;
+            if (returned) {
+                days.computeIfAbsent(returnDate.toLocalDate(), day -> new long[2])[1] += sign;
+            }
+        }
+
+        void flush(LoanStatsRepository repository) {
+            List<UserDelta> userDeltas = users.entrySet().stream()
+                    .filter(e -> e.getValue()[0] != 0 || e.getValue()[1] != 0 || e.getValue()[2] != 0 || e.getValue()[3] != 0)
+                    .map(e -> new UserDelta(e.getKey(), e.getValue()[0], e.getValue()[1], e.getValue()[2], e.getValue()[3]))
+                    .toList();
+            List<BookDelta> bookDeltas = books.entrySet().stream()
+                    .filter(e -> e.getValue() != 0)
+                    .map(e -> new BookDelta(e.getKey(), e.getValue()))
+                    .toList();
+            List<DayDelta> dayDeltas = days.entrySet().stream()
+                    .filter(e -> e.getValue()[0] != 0 || e.getValue()[1] != 0)
+                    .map(e -> new DayDelta(e.getKey(), e.getValue()[0], e.getValue()[1]))
+                    .toList();
+            if (!userDeltas.isEmpty()) {
+                repository.addUserDeltas(userDeltas);
+            }
+            if (!bookDeltas.isEmpty()) {
+                repository.addBookDeltas(bookDeltas);
+            }
+            if (!dayDeltas.isEmpty()) {
+                repository.addDayDeltas(dayDeltas);
+            }
+        }
+    }
+}
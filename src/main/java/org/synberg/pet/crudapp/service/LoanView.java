@@ -0,0 +1,170 @@
+package org.synberg.pet.crudapp.service;
+
+import org.synberg.pet.crudapp.dto.LoanDto;
+import org.synberg.pet.crudapp.dto.LoanRefDto;
+import org.synberg.pet.crudapp.dto.UserDto;
+import org.synberg.pet.crudapp.entity.Loan;
+import org.synberg.pet.crudapp.entity.User;
+import org.synberg.pet.crudapp.exception.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Представление займа в ответе: набор полей ({@code fields}) и вложение связей ({@code embed}).
+ * <p>
+ * По представлению определяется, какие связи загружать: пользователь и книга соединяются
+ * в запросе, только если запрошены их поля, кроме {@code user.id}, {@code book.id}
+ * и {@code book.available}, которые берутся из внешнего ключа займа и индекса доступности.
+ */
+public final class LoanView {
+    /** Полный {@link LoanDto} с вложенными пользователем и книгой. */
+    public static final LoanView FULL = new LoanView(false, null);
+
+    private static final Map<String, Field> EMBEDDED_FIELDS = new LinkedHashMap<>();
+    private static final Map<String, Field> COMPACT_FIELDS = new LinkedHashMap<>();
+
+    static {
+        EMBEDDED_FIELDS.put("id", new Field(Association.NONE, (loan, available) -> loan.getId()));
+        EMBEDDED_FIELDS.put("user", new Field(Association.USER, (loan, available) -> userDto(loan.getUser())));
+        EMBEDDED_FIELDS.put("user.id", new Field(Association.NONE, (loan, available) -> loan.getUser().getId()));
+        EMBEDDED_FIELDS.put("user.name", new Field(Association.USER, (loan, available) -> loan.getUser().getName()));
+        EMBEDDED_FIELDS.put("user.email", new Field(Association.USER, (loan, available) -> loan.getUser().getEmail()));
+        EMBEDDED_FIELDS.put("user.version", new Field(Association.USER, (loan, available) -> loan.getUser().getVersion()));
+        EMBEDDED_FIELDS.put("book", new Field(Association.BOOK, (loan, available) -> BookService.toDto(loan.getBook(), available)));
+        EMBEDDED_FIELDS.put("book.id", new Field(Association.NONE, (loan, available) -> loan.getBook().getId()));
+        EMBEDDED_FIELDS.put("book.title", new Field(Association.BOOK, (loan, available) -> loan.getBook().getTitle()));
+        EMBEDDED_FIELDS.put("book.author", new Field(Association.BOOK, (loan, available) -> loan.getBook().getAuthor()));
+        EMBEDDED_FIELDS.put("book.available", new Field(Association.NONE, (loan, available) -> available));
+        EMBEDDED_FIELDS.put("book.version", new Field(Association.BOOK, (loan, available) -> loan.getBook().getVersion()));
+        EMBEDDED_FIELDS.put("loanDate", new Field(Association.NONE, (loan, available) -> loan.getLoanDate()));
+        EMBEDDED_FIELDS.put("returnDate", new Field(Association.NONE, (loan, available) -> loan.getReturnDate()));
+        EMBEDDED_FIELDS.put("version", new Field(Association.NONE, (loan, available) -> loan.getVersion()));
+
+        COMPACT_FIELDS.put("id", new Field(Association.NONE, (loan, available) -> loan.getId()));
+        COMPACT_FIELDS.put("userId", new Field(Association.NONE, (loan, available) -> loan.getUser().getId()));
+        COMPACT_FIELDS.put("bookId", new Field(Association.NONE, (loan, available) -> loan.getBook().getId()));
+        COMPACT_FIELDS.put("loanDate", new Field(Association.NONE, (loan, available) -> loan.getLoanDate()));
+        COMPACT_FIELDS.put("returnDate", new Field(Association.NONE, (loan, available) -> loan.getReturnDate()));
+        COMPACT_FIELDS.put("version", new Field(Association.NONE, (loan, available) -> loan.getVersion()));
+    }
+
+    private final boolean compact;
+    private final List<Map.Entry<String, Field>> selected;
+    private final boolean fetchUser;
+    private final boolean fetchBook;
+
+    private LoanView(boolean compact, List<Map.Entry<String, Field>> selected) {
+        this.compact = compact;
+        this.selected = selected;
+        this.fetchUser = !compact && (selected == null || selected.stream().anyMatch(e -> e.getValue().association() == Association.USER));
+        this.fetchBook = !compact && (selected == null || selected.stream().anyMatch(e -> e.getValue().association() == Association.BOOK));
+    }
+
+    /**
+     * Разбирает параметры запроса.
+     *
+     * @param fields список полей через запятую, вложенные — через точку ({@code book.title}); {@code null} — все поля.
+     *               Вложенные поля объекта, запрошенного целиком ({@code user,user.name}), поглощаются им
+     * @param embed {@code none} — вместо пользователя и книги только {@code userId}/{@code bookId}; {@code null} или {@code all} — вложить
+     * @return представление
+     * @throws BadRequestException если поле или режим вложения неизвестны
+     */
+    public static LoanView of(String fields, String embed) {
+        boolean compact;
+        if (embed == null || embed.isBlank() || embed.equals("all")) {
+            compact = false;
+        } else if (embed.equals("none")) {
+            compact = true;
+        } else {
+            throw new BadRequestException("embed must be 'all' or 'none'");
+        }
+        if (fields == null || fields.isBlank()) {
+            return compact ? new LoanView(true, null) : FULL;
+        }
+        Map<String, Field> known = compact ? COMPACT_FIELDS : EMBEDDED_FIELDS;
+        Set<String> requested = Arrays.stream(fields.split(","))
+                .map(String::strip)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+        for (String field : requested) {
+            if (!known.containsKey(field)) {
+                throw new BadRequestException("Unknown field: " + field);
+            }
+        }
+        List<Map.Entry<String, Field>> selected = new ArrayList<>();
+        known.entrySet().stream()
+                .filter(e -> requested.contains(e.getKey()) && !requested.contains(parentOf(e.getKey())))
+                .forEach(selected::add);
+        return new LoanView(compact, selected);
+    }
+
+    /**
+     * Нужно ли загружать пользователя займа.
+     */
+    public boolean fetchUser() {
+        return fetchUser;
+    }
+
+    /**
+     * Нужно ли загружать книгу займа.
+     */
+    public boolean fetchBook() {
+        return fetchBook;
+    }
+
+    /**
+     * Строит ответ по займу, не обращаясь к незагруженным связям.
+     *
+     * @param loan займ
+     * @param bookAvailable доступна ли книга займа
+     * @return {@link LoanDto}, {@link LoanRefDto} или {@link Map} с запрошенными полями
+     */
+    Object render(Loan loan, boolean bookAvailable) {
+        if (selected == null) {
+            return compact
+                    ? new LoanRefDto(loan.getId(), loan.getUser().getId(), loan.getBook().getId(),
+                            loan.getLoanDate(), loan.getReturnDate(), loan.getVersion())
+                    : LoanService.toDto(loan, bookAvailable);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Field> entry : selected) {
+            Object value = entry.getValue().value().apply(loan, bookAvailable);
+            String name = entry.getKey();
+            int dot = name.indexOf('.');
+            if (dot < 0) {
+                result.put(name, value);
+            } else if (result.computeIfAbsent(name.substring(0, dot), key -> new LinkedHashMap<String, Object>())
+                    instanceof Map<?, ?> nested) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> parent = (Map<String, Object>) nested;
+                parent.put(name.substring(dot + 1), value);
+            }
+        }
+        return result;
+    }
+
+    private static String parentOf(String field) {
+        int dot = field.indexOf('.');
+        return dot < 0 ? null : field.substring(0, dot);
+    }
+
+    private static UserDto userDto(User user) {
+        return new UserDto(user.getId(), user.getName(), user.getEmail(), user.getVersion());
+    }
+
+    private enum Association {
+        NONE,
+        USER,
+        BOOK
+    }
+
+    private record Field(Association association, BiFunction<Loan, Boolean, Object> value) {
+    }
+}
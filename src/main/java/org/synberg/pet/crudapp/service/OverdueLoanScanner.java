@@ -0,0 +1,94 @@
+package org.synberg.pet.crudapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.synberg.pet.crudapp.entity.Loan;
+import org.synberg.pet.crudapp.entity.OverdueLoan;
+import org.synberg.pet.crudapp.repository.OverdueLoanRepository;
+import org.synberg.pet.crudapp.repository.OverdueLoanRepositoryCustom.ScanResult;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Фоновая задача, поддерживающая множество просроченных займов ({@code overdue_loans}).
+ * <p>
+ * Каждый запуск продолжает с сохранённой позиции {@code (loan_date, id)} и читает активные
+ * займы порциями по {@code app.loans.overdue-scan.batch-size}, пока не дойдёт до займов моложе
+ * срока {@code app.loans.period}. Каждая порция — отдельная транзакция, в которой позиция
+ * блокируется, поэтому несколько экземпляров приложения не обрабатывают одни и те же займы.
+ * После сканирования из множества удаляются возвращённые займы.
+ */
+@Slf4j
+@Component
+public class OverdueLoanScanner {
+    static final String JOB = "overdue-loans";
+
+    private final OverdueLoanRepository overdueLoanRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration period;
+    private final int batchSize;
+
+    public OverdueLoanScanner(OverdueLoanRepository overdueLoanRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.loans.period}") Duration period,
+                              @Value("${app.loans.overdue-scan.batch-size}") int batchSize) {
+        this.overdueLoanRepository = overdueLoanRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.period = period;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.loans.overdue-scan.interval}",
+            initialDelayString = "${app.loans.overdue-scan.interval}")
+    public void scan() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(period);
+        long scanned = 0;
+        while (true) {
+            ScanResult result = transactionTemplate.execute(status -> overdueLoanRepository.lockWatermark(JOB)
+                    .map(watermark -> {
+                        ScanResult batch = overdueLoanRepository.insertOverdueBatch(watermark, cutoff, period, batchSize);
+                        if (batch.last() != null) {
+                            overdueLoanRepository.saveWatermark(JOB, batch.last());
+                        }
+                        return batch;
+                    })
+                    .orElse(null));
+            if (result == null) {
+                log.debug("Overdue loan scan is running on another instance");
+                return;
+            }
+            scanned += result.scanned();
+            if (result.scanned() < batchSize) {
+                break;
+            }
+        }
+        Integer resolved = transactionTemplate.execute(status -> overdueLoanRepository.deleteResolved());
+        if (scanned > 0 || resolved != null && resolved > 0) {
+            log.info("Overdue loan scan: {} scanned, {} resolved", scanned, resolved);
+        }
+    }
+
+    /**
+     * Добавляет займ в множество просроченных, если он уже просрочен.
+     * <p>
+     * Нужен для займов, которые стали активными или получили более раннюю дату выдачи
+     * при обновлении: их позиция может оказаться позади сохранённой позиции сканирования.
+     *
+     * @param loan займ после изменения
+     */
+    void track(Loan loan) {
+        if (loan.getReturnDate() == null && loan.getLoanDate() != null
+                && loan.getLoanDate().isBefore(LocalDateTime.now().minus(period))) {
+            OverdueLoan overdue = new OverdueLoan();
+            overdue.setLoanId(loan.getId());
+            overdue.setDueDate(loan.getLoanDate().plus(period));
+            overdue.setDetectedAt(LocalDateTime.now());
+            overdueLoanRepository.save(overdue);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.synberg.pet.crudapp.service;
+
+import org.springframework.data.domain.Limit;
+import org.synberg.pet.crudapp.dto.PageDto;
+import org.synberg.pet.crudapp.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Вспомогательные методы курсорной (keyset) пагинации.
+ * <p>
+ * Курсор — это закодированный в Base64 идентификатор последней записи страницы.
+ * Следующая страница выбирается условием {@code id > cursor} по индексу первичного ключа,
+ * поэтому стоимость запроса не зависит от номера страницы.
+ * <p>
+ * Результаты поиска упорядочены по релевантности, а не по идентификатору,
+ * поэтому для них курсор хранит смещение ({@link #offsetPage}).
+ * <p>
+ * Займы пользователя и книги упорядочены по дате выдачи, и курсор хранит пару
+ * {@code (loan_date, id)} последней записи ({@link #datePage}).
+ */
+public final class Pagination {
+    public static final int MAX_LIMIT = 500;
+
+    private Pagination() {
+    }
+
+    /**
+     * Декодирует курсор в идентификатор, после которого начинается страница.
+     *
+     * @param cursor курсор из предыдущего ответа или {@code null} для первой страницы
+     * @return идентификатор последней просмотренной записи (или смещение для результатов поиска)
+     * @throws BadRequestException если курсор некорректен или содержит отрицательное значение
+     */
+    public static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            long position = Long.parseLong(value);
+            if (position < 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return position;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Кодирует идентификатор последней записи страницы в курсор.
+     *
+     * @param id идентификатор записи
+     * @return непрозрачный курсор
+     */
+    public static String encodeCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Декодирует курсор в пару {@code (дата, идентификатор)}, после которой начинается страница.
+     *
+     * @param cursor курсор из предыдущего ответа или {@code null} для первой страницы
+     * @return ключ последней просмотренной записи или {@code null} для первой страницы
+     * @throws BadRequestException если курсор некорректен
+     */
+    public static DateCursor decodeDateCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('_');
+            long id = Long.parseLong(value.substring(separator + 1));
+            if (id < 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new DateCursor(LocalDateTime.parse(value.substring(0, separator)), id);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Кодирует дату и идентификатор последней записи страницы в курсор.
+     *
+     * @param date дата записи
+     * @param id идентификатор записи
+     * @return непрозрачный курсор
+     */
+    public static String encodeCursor(LocalDateTime date, long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((date + "_" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Проверяет размер страницы.
+     *
+     * @param limit запрошенный размер страницы
+     * @return лимит выборки на одну запись больше размера страницы,
+     * чтобы без отдельного {@code count} узнать, есть ли следующая страница
+     * @throws BadRequestException если размер вне диапазона {@code 1..MAX_LIMIT}
+     */
+    public static Limit fetchLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        return Limit.of(limit + 1);
+    }
+
+    /**
+     * Собирает страницу из строк, выбранных с лимитом {@link #fetchLimit(int)}.
+     *
+     * @param rows выбранные строки, упорядоченные по идентификатору
+     * @param limit запрошенный размер страницы
+     * @param idOf функция получения идентификатора строки
+     * @param mapper преобразование строки в DTO
+     * @return страница с курсором на следующую страницу
+     */
+    public static <E, T> PageDto<T> page(List<E> rows, int limit, ToLongFunction<E> idOf, Function<E, T> mapper) {
+        boolean hasNext = rows.size() > limit;
+        List<E> pageRows = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext ? encodeCursor(idOf.applyAsLong(pageRows.getLast())) : null;
+        return new PageDto<>(pageRows.stream().map(mapper).toList(), nextCursor);
+    }
+
+    /**
+     * Собирает страницу из строк, упорядоченных по паре {@code (дата, идентификатор)}
+     * и выбранных с лимитом {@link #fetchLimit(int)}.
+     *
+     * @param rows выбранные строки
+     * @param limit запрошенный размер страницы
+     * @param dateOf функция получения даты строки
+     * @param idOf функция получения идентификатора строки
+     * @param mapper преобразование строки в DTO
+     * @return страница с курсором на следующую страницу
+     */
+    public static <E, T> PageDto<T> datePage(List<E> rows, int limit, Function<E, LocalDateTime> dateOf,
+                                             ToLongFunction<E> idOf, Function<E, T> mapper) {
+        boolean hasNext = rows.size() > limit;
+        List<E> pageRows = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext
+                ? encodeCursor(dateOf.apply(pageRows.getLast()), idOf.applyAsLong(pageRows.getLast()))
+                : null;
+        return new PageDto<>(pageRows.stream().map(mapper).toList(), nextCursor);
+    }
+
+    /**
+     * Собирает страницу результатов, выбранных со смещением и лимитом {@link #fetchLimit(int)}.
+     *
+     * @param rows выбранные строки
+     * @param offset смещение первой строки страницы
+     * @param limit запрошенный размер страницы
+     * @param mapper преобразование строки в DTO
+     * @return страница с курсором, содержащим смещение следующей страницы
+     */
+    public static <E, T> PageDto<T> offsetPage(List<E> rows, long offset, int limit, Function<E, T> mapper) {
+        boolean hasNext = rows.size() > limit;
+        List<E> pageRows = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext ? encodeCursor(offset + limit) : null;
+        return new PageDto<>(pageRows.stream().map(mapper).toList(), nextCursor);
+    }
+
+    /**
+     * Ключ записи в курсоре {@link #decodeDateCursor}.
+     *
+     * @param date дата записи
+     * @param id идентификатор записи
+     */
+    public record DateCursor(LocalDateTime date, long id) {}
+}
@@ -0,0 +1,59 @@
+package org.synberg.pet.crudapp.service;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.synberg.pet.crudapp.dto.BookDto;
+import org.synberg.pet.crudapp.exception.NotFoundException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Неблокирующее чтение книг через R2DBC.
+ * <p>
+ * Возвращает те же {@link BookDto}, что и {@link BookService}, поэтому ответы
+ * реактивного и блокирующего API совпадают.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReactiveBookService {
+    static final int FETCH_SIZE = 500;
+
+    private final DatabaseClient databaseClient;
+    private final BookAvailability bookAvailability;
+
+    /**
+     * Находит книгу по её идентификатору.
+     *
+     * @param id идентификатор книги
+     * @return DTO книги или ошибка {@link NotFoundException}, если книга не найдена
+     */
+    public Mono<BookDto> find(Long id) {
+        return databaseClient.sql("SELECT id, title, author, version FROM books WHERE id = :id")
+                .bind("id", id)
+                .map(this::toDto)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Book not found")));
+    }
+
+    /**
+     * Читает все книги по возрастанию id.
+     * <p>
+     * Строки запрашиваются у базы порциями по мере того, как подписчик их потребляет.
+     *
+     * @return поток DTO книг
+     */
+    public Flux<BookDto> findAll() {
+        return databaseClient.sql("SELECT id, title, author, version FROM books ORDER BY id")
+                .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .map(this::toDto)
+                .all();
+    }
+
+    private BookDto toDto(Readable row) {
+        Long id = row.get("id", Long.class);
+        return new BookDto(id, row.get("title", String.class), row.get("author", String.class),
+                bookAvailability.isAvailable(id), row.get("version", Long.class));
+    }
+}
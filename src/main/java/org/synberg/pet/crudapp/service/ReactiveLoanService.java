@@ -0,0 +1,77 @@
+package org.synberg.pet.crudapp.service;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.synberg.pet.crudapp.dto.BookDto;
+import org.synberg.pet.crudapp.dto.LoanDto;
+import org.synberg.pet.crudapp.dto.UserDto;
+import org.synberg.pet.crudapp.exception.NotFoundException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Неблокирующее чтение выдач через R2DBC.
+ * <p>
+ * Пользователь и книга читаются тем же запросом через {@code JOIN} и собираются
+ * в {@link LoanDto}, совпадающий с ответом {@link LoanService}.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReactiveLoanService {
+    private static final String SELECT_LOANS = """
+            SELECT l.id, l.loan_date, l.return_date, l.version,
+                   u.id AS user_id, u.name AS user_name, u.email AS user_email, u.version AS user_version,
+                   b.id AS book_id, b.title AS book_title, b.author AS book_author, b.version AS book_version
+            FROM loans l
+            JOIN users u ON u.id = l.user_id
+            JOIN books b ON b.id = l.book_id
+            """;
+
+    private final DatabaseClient databaseClient;
+    private final BookAvailability bookAvailability;
+
+    /**
+     * Находит выдачу по её идентификатору.
+     *
+     * @param id идентификатор выдачи
+     * @return DTO выдачи или ошибка {@link NotFoundException}, если выдача не найдена
+     */
+    public Mono<LoanDto> find(Long id) {
+        return databaseClient.sql(SELECT_LOANS + "WHERE l.id = :id")
+                .bind("id", id)
+                .map(this::toDto)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Loan not found")));
+    }
+
+    /**
+     * Читает все выдачи по возрастанию id.
+     * <p>
+     * Строки запрашиваются у базы порциями по мере того, как подписчик их потребляет.
+     *
+     * @return поток DTO выдач
+     */
+    public Flux<LoanDto> findAll() {
+        return databaseClient.sql(SELECT_LOANS + "ORDER BY l.id")
+                .filter(statement -> statement.fetchSize(ReactiveBookService.FETCH_SIZE))
+                .map(this::toDto)
+                .all();
+    }
+
+    private LoanDto toDto(Readable row) {
+        Long bookId = row.get("book_id", Long.class);
+        return new LoanDto(
+                row.get("id", Long.class),
+                new UserDto(row.get("user_id", Long.class), row.get("user_name", String.class),
+                        row.get("user_email", String.class), row.get("user_version", Long.class)),
+                new BookDto(bookId, row.get("book_title", String.class), row.get("book_author", String.class),
+                        bookAvailability.isAvailable(bookId), row.get("book_version", Long.class)),
+                row.get("loan_date", LocalDateTime.class),
+                row.get("return_date", LocalDateTime.class),
+                row.get("version", Long.class));
+    }
+}
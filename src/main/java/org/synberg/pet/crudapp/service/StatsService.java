@@ -0,0 +1,74 @@
+package org.synberg.pet.crudapp.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.synberg.pet.crudapp.dto.stats.BookLoanStatsDto;
+import org.synberg.pet.crudapp.dto.stats.DailyLoanStatsDto;
+import org.synberg.pet.crudapp.dto.stats.UserLoanStatsDto;
+import org.synberg.pet.crudapp.exception.BadRequestException;
+import org.synberg.pet.crudapp.exception.NotFoundException;
+import org.synberg.pet.crudapp.repository.LoanStatsRepository;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Отчёты по займам.
+ * <p>
+ * Читает только предагрегированную статистику, которую поддерживает {@link LoanStats},
+ * поэтому стоимость отчёта не зависит от числа займов.
+ */
+@Service
+@RequiredArgsConstructor
+public class StatsService {
+    public static final int MAX_TOP_BOOKS = 100;
+    public static final int MAX_DAYS = 366;
+
+    private final LoanStatsRepository loanStatsRepository;
+
+    /**
+     * Получает самые выдаваемые книги.
+     *
+     * @param limit число книг
+     * @return книги по убыванию числа выдач
+     * @throws BadRequestException если {@code limit} вне допустимого диапазона
+     */
+    @Transactional(readOnly = true)
+    public List<BookLoanStatsDto> findTopBooks(int limit) {
+        if (limit < 1 || limit > MAX_TOP_BOOKS) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_TOP_BOOKS);
+        }
+        return loanStatsRepository.findTopBooks(limit);
+    }
+
+    /**
+     * Получает статистику займов пользователя.
+     *
+     * @param userId ID пользователя
+     * @return число активных и всех займов, средняя длительность займа
+     * @throws NotFoundException если пользователь не найден
+     */
+    @Transactional(readOnly = true)
+    public UserLoanStatsDto findUser(Long userId) {
+        return loanStatsRepository.findUser(userId)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+    }
+
+    /**
+     * Получает дневные счётчики выдач и возвратов.
+     *
+     * @param from первый день
+     * @param to последний день включительно
+     * @return по строке на каждый день периода
+     * @throws BadRequestException если период пуст или длиннее {@link #MAX_DAYS} дней
+     */
+    @Transactional(readOnly = true)
+    public List<DailyLoanStatsDto> findDaily(LocalDate from, LocalDate to) {
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new BadRequestException("Period must be from 1 to " + MAX_DAYS + " days");
+        }
+        return loanStatsRepository.findDaily(from, to);
+    }
+}
@@ -1,45 +1,111 @@
 package org.synberg.pet.crudapp.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.synberg.pet.crudapp.config.CacheConfig;
+import org.synberg.pet.crudapp.dto.bulk.BulkResultDto;
+import org.synberg.pet.crudapp.dto.change.ChangeEntity;
+import org.synberg.pet.crudapp.dto.change.ChangeOperation;
 import org.synberg.pet.crudapp.dto.create.UserCreateDto;
+import org.synberg.pet.crudapp.dto.PageDto;
 import org.synberg.pet.crudapp.dto.UserDto;
 import org.synberg.pet.crudapp.dto.update.UserUpdateDto;
 import org.synberg.pet.crudapp.entity.User;
 import org.synberg.pet.crudapp.exception.AlreadyExistsException;
 import org.synberg.pet.crudapp.exception.NotFoundException;
+import org.synberg.pet.crudapp.exception.PreconditionFailedException;
 import org.synberg.pet.crudapp.repository.UserRepository;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final ChangeLog changeLog;
+    private final TransactionTemplate transactionTemplate;
 
 
     /**
      * Находит пользователя по ID.
+     * <p>
+     * Промах кэша читает с основной базы, а не с реплики: кэш общий для всех клиентов,
+     * и значение с отстающей реплики оставалось бы в нём до истечения TTL.
      *
      * @param id идентификатор пользователя
      * @return {@link UserDto} с данными пользователя
      * @throws NotFoundException если пользователь не найден
      */
+    @Cacheable(CacheConfig.USERS)
+    @Transactional
     public UserDto find(Long id) {
         return userRepository.findById(id)
-                .map(user -> new UserDto(user.getId(), user.getName(), user.getEmail()))
+                .map(user -> new UserDto(user.getId(), user.getName(), user.getEmail(), user.getVersion()))
                 .orElseThrow(() -> new NotFoundException("User not found"));
     }
 
     /**
-     * Возвращает список всех пользователей.
+     * Находит пользователя по email.
+     * <p>
+     * Результат кэшируется: выдача книг активным читателям не обращается
+     * к базе данных за поиском пользователя. Промах кэша, как и в {@link #find(Long)}, читает
+     * с основной базы.
      *
-     * @return список {@link UserDto}
+     * @param email email пользователя
+     * @return {@link UserDto} с данными пользователя
+     * @throws NotFoundException если пользователь не найден
+     */
+    @Cacheable(CacheConfig.USERS_BY_EMAIL)
+    @Transactional
+    public UserDto findByEmail(String email) {
+        return userRepository.findByEmail(email)
+                .map(user -> new UserDto(user.getId(), user.getName(), user.getEmail(), user.getVersion()))
+                .orElseThrow(() -> new NotFoundException("User not found"));
+    }
+
+    /**
+     * Возвращает страницу пользователей в порядке возрастания ID.
+     *
+     * @param cursor курсор предыдущей страницы или {@code null} для первой страницы
+     * @param limit размер страницы
+     * @return страница {@link UserDto} с курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public PageDto<UserDto> findPage(String cursor, int limit) {
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(
+                Pagination.decodeCursor(cursor), Pagination.fetchLimit(limit));
+        return Pagination.page(users, limit, User::getId, user ->
+                new UserDto(user.getId(), user.getName(), user.getEmail(), user.getVersion()));
+    }
+
+    /**
+     * Выгружает всех пользователей в порядке возрастания ID.
+     * <p>
+     * Строки читаются курсором базы данных, каждый пользователь отсоединяется
+     * от контекста персистентности сразу после передачи в {@code consumer}.
+     *
+     * @param consumer получатель {@link UserDto}
      */
-    public List<UserDto> findAll() {
-        return userRepository.findAll().stream()
-                .map(user -> new UserDto(user.getId(), user.getName(), user.getEmail()))
-                .toList();
+    @Transactional(readOnly = true)
+    public void export(Consumer<UserDto> consumer) {
+        try (Stream<User> users = userRepository.streamAllByOrderByIdAsc()) {
+            users.forEach(user -> {
+                consumer.accept(new UserDto(user.getId(), user.getName(), user.getEmail(), user.getVersion()));
+                entityManager.detach(user);
+            });
+        }
     }
 
     /**
@@ -48,6 +114,7 @@ public class UserService {
      * @param userCreateDto DTO с данными нового пользователя
      * @return созданный {@link UserDto}
      */
+    @Transactional
     public UserDto create(UserCreateDto userCreateDto) {
         if (userRepository.existsByEmail(userCreateDto.email())) {
             throw new AlreadyExistsException("Email already exists");
@@ -56,7 +123,23 @@ public class UserService {
         user.setName(userCreateDto.name());
         user.setEmail(userCreateDto.email());
         userRepository.save(user);
-        return new UserDto(user.getId(), user.getName(), user.getEmail());
+        changeLog.record(ChangeEntity.USER, user.getId(), ChangeOperation.CREATE, user.getVersion());
+        return new UserDto(user.getId(), user.getName(), user.getEmail(), user.getVersion());
+    }
+
+    /**
+     * Массово создаёт пользователей.
+     * <p>
+     * Строки валидируются по одной и вставляются порциями по {@link BulkImporter#CHUNK_SIZE}
+     * одним JDBC-батчем в отдельной транзакции; уже существующие email
+     * пропускаются через {@code ON CONFLICT DO NOTHING} и попадают в сводку как дубликаты.
+     *
+     * @param users входные строки
+     * @return сводка импорта
+     */
+    public BulkResultDto bulkCreate(Stream<UserCreateDto> users) {
+        return BulkImporter.importRows(users, validator, chunk -> transactionTemplate.execute(status ->
+                changeLog.recordCreated(ChangeEntity.USER, userRepository.insertIgnoringDuplicates(chunk))));
     }
 
     /**
@@ -64,16 +147,27 @@ public class UserService {
      *
      * @param id идентификатор пользователя
      * @param userUpdateDto DTO с новыми данными
+     * @param expectedVersion версия из заголовка {@code If-Match} или {@code null} для безусловного обновления
      * @return обновлённый {@link UserDto}
      * @throws NotFoundException если пользователь не найден
+     * @throws PreconditionFailedException если текущая версия пользователя отличается от ожидаемой
      */
-    public UserDto update(Long id, UserUpdateDto userUpdateDto) {
+    @Caching(
+            put = @CachePut(cacheNames = CacheConfig.USERS, key = "#id"),
+            evict = @CacheEvict(cacheNames = CacheConfig.USERS_BY_EMAIL, allEntries = true)
+    )
+    @Transactional
+    public UserDto update(Long id, UserUpdateDto userUpdateDto, Long expectedVersion) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("User not found"));
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new PreconditionFailedException("User was modified");
+        }
         user.setName(userUpdateDto.name());
         user.setEmail(userUpdateDto.email());
-        User updatedUser = userRepository.save(user);
-        return new UserDto(updatedUser.getId(), updatedUser.getName(), updatedUser.getEmail());
+        User updatedUser = userRepository.saveAndFlush(user);
+        changeLog.record(ChangeEntity.USER, id, ChangeOperation.UPDATE, updatedUser.getVersion());
+        return new UserDto(updatedUser.getId(), updatedUser.getName(), updatedUser.getEmail(), updatedUser.getVersion());
     }
 
     /**
@@ -82,11 +176,17 @@ public class UserService {
      * @param id идентификатор пользователя
      * @throws NotFoundException если пользователь не найден
      */
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USERS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.USERS_BY_EMAIL, allEntries = true)
+    })
+    @Transactional
     public void delete(Long id) {
         if (!userRepository.existsById(id)) {
             throw new NotFoundException("User not found");
         }
         userRepository.deleteById(id);
+        changeLog.record(ChangeEntity.USER, id, ChangeOperation.DELETE, null);
     }
 }
 